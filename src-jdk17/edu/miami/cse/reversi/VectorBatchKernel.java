@@ -0,0 +1,95 @@
+package edu.miami.cse.reversi;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link BatchKernel} on the incubating Vector API, scoring as many positions
+ * per instruction as the widest vectors of the machine hold. This is the only
+ * class that needs JDK 17 or later, so it lives outside {@code src} and is
+ * compiled separately, into the same output directory:
+ * <pre>
+ * javac --release 17 --add-modules jdk.incubator.vector -cp bin -d bin src-jdk17/edu/miami/cse/reversi/*.java
+ * </pre>
+ * {@link BatchEvaluator} uses it when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}, and falls back to
+ * {@link ScalarBatchKernel} otherwise.
+ * <p>
+ * JDK 17 has no lane-wise population count, so squares are counted with shifts
+ * and masks.
+ */
+final class VectorBatchKernel implements BatchKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private ScalarBatchKernel scalar = new ScalarBatchKernel();
+
+    @Override
+    public void addSquares(long[] own, long[] opponent, int count, long mask, int weight, long[] totals) {
+        int bound = SPECIES.loopBound(count);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector ownSquares = bitCount(LongVector.fromArray(SPECIES, own, i).and(mask));
+            LongVector opponentSquares = bitCount(LongVector.fromArray(SPECIES, opponent, i).and(mask));
+            LongVector.fromArray(SPECIES, totals, i)
+                    .add(ownSquares.sub(opponentSquares).mul(weight))
+                    .intoArray(totals, i);
+        }
+        this.scalar.addSquares(own, opponent, bound, count, mask, weight, totals);
+    }
+
+    @Override
+    public void addMobility(BitBoard geometry, long[] own, long[] opponent, int count, int weight, long[] totals) {
+        int bound = SPECIES.loopBound(count);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector ownBits = LongVector.fromArray(SPECIES, own, i);
+            LongVector opponentBits = LongVector.fromArray(SPECIES, opponent, i);
+            LongVector ownMoves = bitCount(possibleMoves(geometry, ownBits, opponentBits));
+            LongVector opponentMoves = bitCount(possibleMoves(geometry, opponentBits, ownBits));
+            LongVector.fromArray(SPECIES, totals, i)
+                    .add(ownMoves.sub(opponentMoves).mul(weight))
+                    .intoArray(totals, i);
+        }
+        this.scalar.addMobility(geometry, own, opponent, bound, count, weight, totals);
+    }
+
+    /**
+     * Same as {@link BitBoard#possibleMoves(long, long)}, lane by lane. Runs are
+     * always extended to their greatest possible length, since skipping the rest
+     * of the loop would need every lane to have finished.
+     */
+    private static LongVector possibleMoves(BitBoard geometry, LongVector own, LongVector opponent) {
+        LongVector empty = own.or(opponent).not().and(geometry.full()[0]);
+        LongVector moves = LongVector.zero(SPECIES);
+        for (int direction = 0; direction < BitBoard.directionCount(); ++direction) {
+            int distance = geometry.shiftDistance(direction);
+            long mask = geometry.shiftMask(direction)[0];
+            LongVector line = shift(own, distance, mask).and(opponent);
+            for (int k = 0; k < geometry.size() - 3; ++k) {
+                line = line.or(shift(line, distance, mask).and(opponent));
+            }
+            moves = moves.or(shift(line, distance, mask).and(empty));
+        }
+        return moves;
+    }
+
+    private static LongVector shift(LongVector bits, int distance, long mask) {
+        LongVector shifted = distance > 0
+                ? bits.lanewise(VectorOperators.LSHL, distance)
+                : bits.lanewise(VectorOperators.LSHR, -distance);
+        return shifted.and(mask);
+    }
+
+    /**
+     * @return The number of set bits in each lane.
+     */
+    private static LongVector bitCount(LongVector bits) {
+        LongVector v = bits.sub(bits.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+        v = v.and(0x3333333333333333L).add(v.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+        v = v.add(v.lanewise(VectorOperators.LSHR, 4)).and(0x0f0f0f0f0f0f0f0fL);
+        v = v.add(v.lanewise(VectorOperators.LSHR, 8));
+        v = v.add(v.lanewise(VectorOperators.LSHR, 16));
+        v = v.add(v.lanewise(VectorOperators.LSHR, 32));
+        return v.and(0x7f);
+    }
+}
@@ -0,0 +1,274 @@
+package edu.miami.cse.reversi;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Scores positions by a weighted sum over the occupied squares plus a mobility
+ * term. Squares that share a weight are counted together with one mask and a
+ * population count. Positions can be scored one at a time, or many at once
+ * with {@link #evaluate(Board[], int, Player, int[])}: the batch is laid out
+ * word by word across positions, so that each pass is one loop over the batch
+ * in a {@link BatchKernel}. The kernel uses the Vector API where it is
+ * available (see {@code VectorBatchKernel}) and plain Java otherwise.
+ */
+public class BatchEvaluator {
+
+    private static final BatchKernel KERNEL = loadKernel();
+
+    private int size;
+    private int mobilityWeight;
+    private int[] planeWeights; //The distinct nonzero square weights
+    private long[][] planeMasks; //The squares having each distinct weight
+    private BatchKernel kernel;
+
+    /**
+     * @param size           The board size.
+     * @param squareWeights  The weight of each square, indexed by
+     *                       {@code row * size + column}.
+     * @param mobilityWeight The weight of each move the player has over the opponent.
+     */
+    public BatchEvaluator(int size, int[] squareWeights, int mobilityWeight) {
+        this(size, squareWeights, mobilityWeight, KERNEL);
+    }
+
+    /**
+     * Same as {@link #BatchEvaluator(int, int[], int)}, scoring batches with the
+     * given kernel.
+     */
+    BatchEvaluator(int size, int[] squareWeights, int mobilityWeight, BatchKernel kernel) {
+        if (squareWeights.length != size * size) {
+            String message = "Expected %d square weights for a %dx%d board, found %d";
+            throw new IllegalArgumentException(String.format(message, size * size, size, size, squareWeights.length));
+        }
+        this.size = size;
+        this.mobilityWeight = mobilityWeight;
+        this.kernel = kernel;
+        BitBoard geometry = BitBoard.forSize(size);
+        int[] distinct = Arrays.stream(squareWeights).filter(w -> w != 0).distinct().toArray();
+        this.planeWeights = distinct;
+        this.planeMasks = new long[distinct.length][];
+        for (int k = 0; k < distinct.length; ++k) {
+            this.planeMasks[k] = geometry.empty();
+            for (int index = 0; index < squareWeights.length; ++index) {
+                if (squareWeights[index] == distinct[k]) {
+                    BitBoard.set(this.planeMasks[k], index);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The kernel used for batches unless another is given: the Vector API
+     * kernel if it was built and the {@code jdk.incubator.vector} module is
+     * present (run with {@code --add-modules jdk.incubator.vector}), otherwise
+     * {@link ScalarBatchKernel}. Setting the {@code reversi.vector} system
+     * property to {@code false} forces the scalar kernel.
+     */
+    static BatchKernel defaultKernel() {
+        return KERNEL;
+    }
+
+    private static BatchKernel loadKernel() {
+        BatchKernel scalar = new ScalarBatchKernel();
+        if (!Boolean.parseBoolean(System.getProperty("reversi.vector", "true"))) {
+            return scalar;
+        }
+        try {
+            BatchKernel vector = Class.forName("edu.miami.cse.reversi.VectorBatchKernel")
+                    .asSubclass(BatchKernel.class).newInstance();
+            return agree(vector, scalar) ? vector : scalar;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not built, or the module is missing
+            return scalar;
+        }
+    }
+
+    /**
+     * @return True if both kernels give the same totals on a batch of random
+     * 8x8 positions, whose length is not a multiple of any vector length.
+     */
+    private static boolean agree(BatchKernel kernel, BatchKernel reference) {
+        BitBoard geometry = BitBoard.forSize(8);
+        Random random = new Random(0);
+        int count = 67;
+        long[] own = new long[count];
+        long[] opponent = new long[count];
+        for (int i = 0; i < count; ++i) {
+            own[i] = random.nextLong() & random.nextLong();
+            opponent[i] = random.nextLong() & random.nextLong() & ~own[i];
+        }
+        long[] expected = new long[count];
+        long[] actual = new long[count];
+        long mask = random.nextLong();
+        reference.addSquares(own, opponent, count, mask, 7, expected);
+        kernel.addSquares(own, opponent, count, mask, 7, actual);
+        reference.addMobility(geometry, own, opponent, count, -3, expected);
+        kernel.addMobility(geometry, own, opponent, count, -3, actual);
+        return Arrays.equals(expected, actual);
+    }
+
+    /**
+     * @return Square weights in the style of {@code AlphaBeta}: every disc counts
+     * 1, with a bonus for corners and edges and a penalty for the squares next to
+     * corners.
+     */
+    public static int[] defaultWeights(int size) {
+        int[] weights = new int[size * size];
+        for (int row = 0; row < size; ++row) {
+            for (int column = 0; column < size; ++column) {
+                boolean rowEdge = row == 0 || row == size - 1;
+                boolean columnEdge = column == 0 || column == size - 1;
+                boolean rowNearCorner = row <= 1 || row >= size - 2;
+                boolean columnNearCorner = column <= 1 || column >= size - 2;
+                int weight = 1;
+                if (rowEdge && columnEdge) {
+                    weight += 20;
+                } else if (rowNearCorner && columnNearCorner) {
+                    weight += -5;
+                } else if (rowEdge || columnEdge) {
+                    weight += 15;
+                }
+                weights[row * size + column] = weight;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Creates an evaluator from a square weight file as written by
+     * {@link WeightFitter}: one board row per line, weights separated by spaces.
+     * Weights are given in discs and are scaled to hundredths of a disc.
+     *
+     * @param mobilityWeight The weight of each move the player has over the
+     *                       opponent, in hundredths of a disc.
+     */
+    public static BatchEvaluator load(String file, int mobilityWeight) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.trim().isEmpty()) {
+                    rows.add(line.trim().split("\\s+"));
+                }
+            }
+        }
+        int size = rows.size();
+        int[] weights = new int[size * size];
+        for (int row = 0; row < size; ++row) {
+            String[] values = rows.get(row);
+            if (values.length != size) {
+                String message = "Row %d of %s has %d weights, expected %d";
+                throw new IOException(String.format(message, row, file, values.length, size));
+            }
+            for (int column = 0; column < size; ++column) {
+                weights[row * size + column] = (int) Math.round(100 * Double.parseDouble(values[column]));
+            }
+        }
+        return new BatchEvaluator(size, weights, mobilityWeight);
+    }
+
+    /**
+     * @return The board size this evaluator was built for.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Scores a single position.
+     *
+     * @param board  The position to score.
+     * @param player The player from whose point of view to score.
+     * @return The weighted squares of the player minus those of the opponent, plus
+     * the weighted mobility difference.
+     */
+    public int evaluate(Board board, Player player) {
+        this.checkSize(board);
+        long[] own = board.bits(player);
+        long[] opponent = board.bits(player.opponent());
+        int score = 0;
+        for (int k = 0; k < this.planeWeights.length; ++k) {
+            long[] mask = this.planeMasks[k];
+            int squares = 0;
+            for (int w = 0; w < mask.length; ++w) {
+                squares += Long.bitCount(own[w] & mask[w]) - Long.bitCount(opponent[w] & mask[w]);
+            }
+            score += this.planeWeights[k] * squares;
+        }
+        if (this.mobilityWeight != 0) {
+            score += this.mobilityWeight * (this.mobility(own, opponent) - this.mobility(opponent, own));
+        }
+        return score;
+    }
+
+    /**
+     * @return The number of squares where the player owning {@code own} could play.
+     */
+    private int mobility(long[] own, long[] opponent) {
+        BitBoard geometry = BitBoard.forSize(this.size);
+        if (geometry.isSingleWord()) {
+            return Long.bitCount(geometry.possibleMoves(own[0], opponent[0]));
+        }
+        return BitBoard.bitCount(geometry.possibleMoves(own, opponent));
+    }
+
+    /**
+     * Scores many positions at once. Gives the same scores as calling
+     * {@link #evaluate(Board, Player)} on each position.
+     *
+     * @param boards The positions to score.
+     * @param count  The number of positions to score, from the start of {@code boards}.
+     * @param player The player from whose point of view to score.
+     * @param scores Filled with the score of each position.
+     */
+    public void evaluate(Board[] boards, int count, Player player, int[] scores) {
+        BitBoard geometry = BitBoard.forSize(this.size);
+        int words = geometry.empty().length;
+        // Lay the batch out word by word so the inner loops run over positions
+        long[][] own = new long[words][count];
+        long[][] opponent = new long[words][count];
+        for (int i = 0; i < count; ++i) {
+            this.checkSize(boards[i]);
+            long[] ownBits = boards[i].bits(player);
+            long[] opponentBits = boards[i].bits(player.opponent());
+            for (int w = 0; w < words; ++w) {
+                own[w][i] = ownBits[w];
+                opponent[w][i] = opponentBits[w];
+            }
+        }
+        long[] totals = new long[count];
+        for (int k = 0; k < this.planeWeights.length; ++k) {
+            for (int w = 0; w < words; ++w) {
+                long mask = this.planeMasks[k][w];
+                if (mask != 0) {
+                    this.kernel.addSquares(own[w], opponent[w], count, mask, this.planeWeights[k], totals);
+                }
+            }
+        }
+        if (this.mobilityWeight != 0 && geometry.isSingleWord()) {
+            this.kernel.addMobility(geometry, own[0], opponent[0], count, this.mobilityWeight, totals);
+        }
+        for (int i = 0; i < count; ++i) {
+            scores[i] = (int) totals[i];
+        }
+        if (this.mobilityWeight != 0 && !geometry.isSingleWord()) {
+            for (int i = 0; i < count; ++i) {
+                long[] ownBits = boards[i].bits(player);
+                long[] opponentBits = boards[i].bits(player.opponent());
+                scores[i] += this.mobilityWeight * (this.mobility(ownBits, opponentBits) - this.mobility(opponentBits, ownBits));
+            }
+        }
+    }
+
+    private void checkSize(Board board) {
+        if (board.size() != this.size) {
+            String message = "Evaluator is for %dx%d boards, found a %dx%d board";
+            throw new IllegalArgumentException(String.format(message, this.size, this.size, board.size(), board.size()));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package edu.miami.cse.reversi;
+
+/**
+ * The inner loops of {@link BatchEvaluator}, each of which runs over a whole
+ * batch of positions laid out as one array per bitboard word. Scores are
+ * accumulated into {@code totals}. Intended only for internal use.
+ *
+ * @see ScalarBatchKernel
+ */
+interface BatchKernel {
+
+    /**
+     * For every position {@code i < count}, adds {@code weight} times the number
+     * of squares of {@code own[i]} in {@code mask} minus those of
+     * {@code opponent[i]} to {@code totals[i]}.
+     */
+    void addSquares(long[] own, long[] opponent, int count, long mask, int weight, long[] totals);
+
+    /**
+     * For every position {@code i < count} on a board that fits in a single word,
+     * adds {@code weight} times the number of squares where {@code own[i]} could
+     * play minus those where {@code opponent[i]} could play to {@code totals[i]}.
+     */
+    void addMobility(BitBoard geometry, long[] own, long[] opponent, int count, int weight, long[] totals);
+}
@@ -0,0 +1,308 @@
+package edu.miami.cse.reversi;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The geometry of a square Reversi board stored as a multi-word bitboard. A set
+ * of squares is an array of longs, with square (row, column) at bit index
+ * {@code row * size + column}. One instance is shared per board size, holding
+ * the masks needed to shift sets of squares in each of the eight directions
+ * without wrapping around the board edges. Intended only for internal use.
+ */
+final class BitBoard {
+
+    private static final ConcurrentMap<Integer, BitBoard> GEOMETRIES = new ConcurrentHashMap<>();
+
+    private static final int[][] DIRECTIONS =
+            new int[][]{{0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0},
+                    {-1, 1}};
+
+    private int size;
+    private int words;
+    private long[] full; //All squares on the board
+    private long[] notFirstColumn; //All squares except those in column 0
+    private long[] notLastColumn; //All squares except those in column size - 1
+
+    private BitBoard(int size) {
+        this.size = size;
+        this.words = (size * size + 63) >>> 6;
+        this.full = new long[this.words];
+        this.notFirstColumn = new long[this.words];
+        this.notLastColumn = new long[this.words];
+        for (int row = 0; row < size; ++row) {
+            for (int column = 0; column < size; ++column) {
+                int index = this.index(row, column);
+                set(this.full, index);
+                if (column != 0) {
+                    set(this.notFirstColumn, index);
+                }
+                if (column != size - 1) {
+                    set(this.notLastColumn, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The shared geometry for boards with the given number of rows.
+     */
+    static BitBoard forSize(int size) {
+        BitBoard geometry = GEOMETRIES.get(size);
+        if (geometry == null) {
+            GEOMETRIES.putIfAbsent(size, new BitBoard(size));
+            geometry = GEOMETRIES.get(size);
+        }
+        return geometry;
+    }
+
+    /**
+     * @return The number of rows (= the number of columns) of this geometry.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @return A new, empty set of squares.
+     */
+    long[] empty() {
+        return new long[this.words];
+    }
+
+    /**
+     * @return The bit index of the given square.
+     */
+    int index(int row, int column) {
+        return row * this.size + column;
+    }
+
+    /**
+     * @return True if the given row and column lie on the board.
+     */
+    boolean contains(int row, int column) {
+        return 0 <= row && row < this.size && 0 <= column && column < this.size;
+    }
+
+    static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    static int bitCount(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the squares where the player owning {@code own} may play, i.e. the
+     * empty squares from which at least one contiguous line of {@code opponent}
+     * squares is closed off by one of {@code own}.
+     *
+     * @param own      The squares of the player to move.
+     * @param opponent The squares of the opponent.
+     * @return The set of legal squares for the player to move.
+     */
+    long[] possibleMoves(long[] own, long[] opponent) {
+        if (this.words == 1) {
+            return new long[]{this.possibleMoves(own[0], opponent[0])};
+        }
+        long[] empty = new long[this.words];
+        for (int i = 0; i < this.words; ++i) {
+            empty[i] = this.full[i] & ~(own[i] | opponent[i]);
+        }
+        long[] moves = new long[this.words];
+        long[] line = new long[this.words];
+        long[] step = new long[this.words];
+        for (int direction = 0; direction < DIRECTIONS.length; ++direction) {
+            // Opponent squares adjacent to one of our squares in this direction
+            this.shift(direction, own, line);
+            boolean any = false;
+            for (int i = 0; i < this.words; ++i) {
+                line[i] &= opponent[i];
+                any |= line[i] != 0;
+            }
+            // Extend the runs of opponent squares as far as they go; a run can
+            // be at most size - 2 squares long
+            for (int k = 0; any && k < this.size - 3; ++k) {
+                this.shift(direction, line, step);
+                any = false;
+                for (int i = 0; i < this.words; ++i) {
+                    long grown = step[i] & opponent[i] & ~line[i];
+                    line[i] |= grown;
+                    any |= grown != 0;
+                }
+            }
+            // The empty square just past the end of a run is a legal move
+            this.shift(direction, line, step);
+            for (int i = 0; i < this.words; ++i) {
+                moves[i] |= step[i] & empty[i];
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * @return True if a set of squares fits in a single long, so that
+     * {@link #possibleMoves(long, long)} can be used.
+     */
+    boolean isSingleWord() {
+        return this.words == 1;
+    }
+
+    /**
+     * @return All squares on the board. Must not be modified.
+     */
+    long[] full() {
+        return this.full;
+    }
+
+    /**
+     * @return The number of directions in which lines of squares run.
+     */
+    static int directionCount() {
+        return DIRECTIONS.length;
+    }
+
+    /**
+     * @return How far one step in the given direction moves a bit index, positive
+     * towards higher indexes.
+     */
+    int shiftDistance(int direction) {
+        int[] step = DIRECTIONS[direction];
+        return step[0] * this.size + step[1];
+    }
+
+    /**
+     * @return The squares left after shifting one step in the given direction
+     * that did not wrap around from the opposite edge. Must not be modified.
+     */
+    long[] shiftMask(int direction) {
+        int[] step = DIRECTIONS[direction];
+        return step[1] > 0 ? this.notFirstColumn : step[1] < 0 ? this.notLastColumn : this.full;
+    }
+
+    /**
+     * Same as {@link #possibleMoves(long[], long[])}, for boards whose squares fit
+     * in a single long. Does not allocate.
+     */
+    long possibleMoves(long own, long opponent) {
+        long empty = this.full[0] & ~(own | opponent);
+        long moves = 0;
+        for (int direction = 0; direction < DIRECTIONS.length; ++direction) {
+            long line = this.shift(direction, own) & opponent;
+            for (int k = 0; line != 0 && k < this.size - 3; ++k) {
+                line |= this.shift(direction, line) & opponent;
+            }
+            moves |= this.shift(direction, line) & empty;
+        }
+        return moves;
+    }
+
+    /**
+     * Computes the opponent squares captured by playing at the given square.
+     *
+     * @param own      The squares of the player to move.
+     * @param opponent The squares of the opponent.
+     * @param row      The row where the player places their piece.
+     * @param column   The column where the player places their piece.
+     * @return The set of captured squares, empty if the play captures nothing.
+     */
+    long[] captures(long[] own, long[] opponent, int row, int column) {
+        long[] captures = new long[this.words];
+        for (int[] direction : DIRECTIONS) {
+            int rowStep = direction[0];
+            int columnStep = direction[1];
+            int r = row + rowStep;
+            int c = column + columnStep;
+            int run = 0;
+            while (this.contains(r, c) && get(opponent, this.index(r, c))) {
+                r += rowStep;
+                c += columnStep;
+                ++run;
+            }
+            if (run > 0 && this.contains(r, c) && get(own, this.index(r, c))) {
+                for (int k = 1; k <= run; ++k) {
+                    set(captures, this.index(row + k * rowStep, column + k * columnStep));
+                }
+            }
+        }
+        return captures;
+    }
+
+    /**
+     * Moves every square in {@code src} one step in the given direction, dropping
+     * squares that would fall off the board. {@code src} and {@code dst} may be
+     * the same array.
+     */
+    private void shift(int direction, long[] src, long[] dst) {
+        int distance = this.shiftDistance(direction);
+        if (distance > 0) {
+            shiftUp(src, distance, dst);
+        } else {
+            shiftDown(src, -distance, dst);
+        }
+        long[] mask = this.shiftMask(direction);
+        for (int i = 0; i < this.words; ++i) {
+            dst[i] &= mask[i];
+        }
+    }
+
+    /**
+     * Same as {@link #shift(int, long[], long[])}, for a single-word board.
+     */
+    private long shift(int direction, long bits) {
+        int distance = this.shiftDistance(direction);
+        long shifted = distance > 0 ? bits << distance : bits >>> -distance;
+        return shifted & this.shiftMask(direction)[0];
+    }
+
+    /**
+     * Shifts towards higher bit indexes. Iterates from the highest word down so
+     * that it is safe in place.
+     */
+    private static void shiftUp(long[] src, int n, long[] dst) {
+        int wordShift = n >>> 6;
+        int bitShift = n & 63;
+        for (int i = src.length - 1; i >= 0; --i) {
+            int j = i - wordShift;
+            long value = j >= 0 ? src[j] << bitShift : 0;
+            if (bitShift != 0 && j - 1 >= 0) {
+                value |= src[j - 1] >>> (64 - bitShift);
+            }
+            dst[i] = value;
+        }
+    }
+
+    /**
+     * Shifts towards lower bit indexes. Iterates from the lowest word up so that
+     * it is safe in place.
+     */
+    private static void shiftDown(long[] src, int n, long[] dst) {
+        int wordShift = n >>> 6;
+        int bitShift = n & 63;
+        for (int i = 0; i < src.length; ++i) {
+            int j = i + wordShift;
+            long value = j < src.length ? src[j] >>> bitShift : 0;
+            if (bitShift != 0 && j + 1 < src.length) {
+                value |= src[j + 1] << (64 - bitShift);
+            }
+            dst[i] = value;
+        }
+    }
+}
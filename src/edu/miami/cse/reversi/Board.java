@@ -13,105 +13,120 @@ import java.util.*;
  */
 public class Board {
     private int size;
+    private BitBoard geometry;
     private Player player;
-    private PMap<Square, Player> owners;
+    private long[] black;
+    private long[] white;
+    private long[] possible;
     private PSequence<Move> moves;
-    private PMap<Square, PSet<Square>> possibleSquares;
     private PMap<Player, Integer> playerSquareCounts;
+    private Set<Square> possibleSquares; //Built lazily from possible
+    private Map<Square, Player> owners; //Built lazily from black and white
 
     /**
      * Creates an 8x8 Reversi board with the standard initial configuration of
      * {@link Player#BLACK} and {@link Player#WHITE} pieces.
      */
     Board() {
-        this(8, Player.BLACK, TreePVector.empty(), getInitialOwners(8), getInitialPlayerSquareCounts());
+        this(8);
     }
 
+    /**
+     * Creates a size x size Reversi board with the standard initial configuration
+     * of {@link Player#BLACK} and {@link Player#WHITE} pieces in the center.
+     *
+     * @param size The number of rows (= the number of columns). Must be even and
+     *             at least 4.
+     */
+    Board(int size) {
+        this(checkSize(size), Player.BLACK, TreePVector.empty(), getInitialOwners(size, Player.BLACK),
+                getInitialOwners(size, Player.WHITE));
+    }
 
     /**
      * Low-level constructor. Intended only for internal use.
      */
-    private Board(int size, Player player, PSequence<Move> moves, PMap<Square, Player> owners, PMap<Player, Integer> playerSquareCounts) {
+    private Board(int size, Player player, PSequence<Move> moves, long[] black, long[] white) {
         this.size = size;
+        this.geometry = BitBoard.forSize(size);
         this.player = player;
         this.moves = moves;
-        this.owners = owners;
-        this.possibleSquares = HashTreePMap.empty();
-        this.playerSquareCounts = playerSquareCounts;
+        this.black = black;
+        this.white = white;
+        this.playerSquareCounts = HashTreePMap.<Player, Integer>empty()
+                .plus(Player.BLACK, BitBoard.bitCount(black))
+                .plus(Player.WHITE, BitBoard.bitCount(white));
         // Determine the possible moves
-        Player opponent = this.player.opponent();
-        int[][] directions =
-                new int[][]{{0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0},
-                        {-1, 1}};
-        for (int row = 0; row < this.size; ++row) {
-            for (int column = 0; column < this.size; ++column) {
-                if (this.owners.get(new Square(row, column)) == null) {
-                    PSet<Square> allCaptures = HashTreePSet.empty();
-                    for (int[] direction : directions) {
-                        int rowStep = direction[0];
-                        int columnStep = direction[1];
-                        int r = row + rowStep;
-                        int c = column + columnStep;
-                        PSet<Square> captures = HashTreePSet.empty();
-                        if (this.hasOwner(r, c, opponent)) {
-                            captures = captures.plus(new Square(r, c));
-                            r += rowStep;
-                            c += columnStep;
-                            while (this.hasOwner(r, c, opponent)) {
-                                captures = captures.plus(new Square(r, c));
-                                r += rowStep;
-                                c += columnStep;
-                            }
-                            if (this.hasOwner(r, c, this.player)) {
-                                allCaptures = allCaptures.plusAll(captures);
-                            }
-                        }
-                    }
-                    if (!allCaptures.isEmpty()) {
-                        this.possibleSquares = this.possibleSquares.plus(new Square(row, column), allCaptures);
-                    }
-                }
-            }
+        this.possible = this.geometry.possibleMoves(this.bits(player), this.bits(player.opponent()));
+    }
+
+    /**
+     * Creates a board with the given pieces and player to move, and no recorded
+     * moves. Intended only for internal use.
+     */
+    static Board fromBits(int size, Player player, long[] black, long[] white) {
+        return new Board(checkSize(size), player, TreePVector.empty(), black.clone(), white.clone());
+    }
+
+    private static int checkSize(int size) {
+        if (size < 4 || size % 2 != 0) {
+            String message = "Board size must be even and at least 4, found %d";
+            throw new IllegalArgumentException(String.format(message, size));
         }
+        return size;
     }
 
     /**
      * Utility method for generating the initial board configuration. Intended only
      * for internal use.
      */
-    private static PMap<Square, Player> getInitialOwners(int size) {
-        PMap<Square, Player> owners = HashTreePMap.empty();
+    private static long[] getInitialOwners(int size, Player player) {
+        BitBoard geometry = BitBoard.forSize(size);
+        long[] owners = geometry.empty();
         int mid = size / 2;
-        owners = owners.plus(new Square(mid - 1, mid - 1), Player.WHITE);
-        owners = owners.plus(new Square(mid - 1, mid), Player.BLACK);
-        owners = owners.plus(new Square(mid, mid - 1), Player.BLACK);
-        owners = owners.plus(new Square(mid, mid), Player.WHITE);
+        if (player == Player.WHITE) {
+            BitBoard.set(owners, geometry.index(mid - 1, mid - 1));
+            BitBoard.set(owners, geometry.index(mid, mid));
+        } else {
+            BitBoard.set(owners, geometry.index(mid - 1, mid));
+            BitBoard.set(owners, geometry.index(mid, mid - 1));
+        }
         return owners;
     }
 
-    private static PMap<Player, Integer> getInitialPlayerSquareCounts() {
-        return HashTreePMap.<Player, Integer>empty().plus(Player.BLACK, 2).plus(Player.WHITE, 2);
+    /**
+     * @return The squares occupied by the given player, as a row-major bitboard.
+     * Intended only for internal use; the returned array must not be modified.
+     */
+    long[] bits(Player owner) {
+        return owner == Player.BLACK ? this.black : this.white;
     }
 
     /**
-     * Utility method for simultaneously checking bounds and owner. Intended only
-     * for internal use.
+     * Utility method for looking up the owner of a square. Intended only for
+     * internal use.
      */
-    private boolean hasOwner(int row, int column, Player owner) {
-        return 0 <= row && row < this.size && 0 <= column && column < this.size
-                && this.owners.get(new Square(row, column)) == owner;
+    private Player getOwner(int row, int column) {
+        int index = this.geometry.index(row, column);
+        if (BitBoard.get(this.black, index)) {
+            return Player.BLACK;
+        } else if (BitBoard.get(this.white, index)) {
+            return Player.WHITE;
+        }
+        return null;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.size, this.owners);
+        return Objects.hash(this.size, Arrays.hashCode(this.black), Arrays.hashCode(this.white));
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof Board) {
             Board that = (Board) obj;
-            return this.size == that.size && Objects.equals(this.owners, that.owners);
+            return this.size == that.size && Arrays.equals(this.black, that.black)
+                    && Arrays.equals(this.white, that.white);
         }
         return false;
     }
@@ -121,7 +136,7 @@ public class Board {
         StringBuilder builder = new StringBuilder();
         for (int row = 0; row < this.size; ++row) {
             for (int col = 0; col < this.size; ++col) {
-                Player owner = this.owners.get(new Square(row, col));
+                Player owner = this.getOwner(row, col);
                 if (owner == Player.WHITE) {
                     builder.append('W');
                 } else if (owner == Player.BLACK) {
@@ -155,6 +170,18 @@ public class Board {
      * @return A mapping from squares to the players currently occupying them.
      */
     Map<Square, Player> getSquareOwners() {
+        if (this.owners == null) {
+            Map<Square, Player> owners = new HashMap<>();
+            for (int row = 0; row < this.size; ++row) {
+                for (int column = 0; column < this.size; ++column) {
+                    Player owner = this.getOwner(row, column);
+                    if (owner != null) {
+                        owners.put(new Square(row, column), owner);
+                    }
+                }
+            }
+            this.owners = Collections.unmodifiableMap(owners);
+        }
         return this.owners;
     }
 
@@ -170,7 +197,8 @@ public class Board {
      * otherwise.
      */
     public boolean isComplete() {
-        return this.possibleSquares.isEmpty() && this.pass().possibleSquares.isEmpty();
+        return BitBoard.isEmpty(this.possible)
+                && BitBoard.isEmpty(this.geometry.possibleMoves(this.bits(this.player.opponent()), this.bits(this.player)));
     }
 
     /**
@@ -200,7 +228,18 @@ public class Board {
      * @return The possible valid moves that the current player may choose from.
      */
     public Set<Square> getCurrentPossibleSquares() {
-        return this.possibleSquares.keySet();
+        if (this.possibleSquares == null) {
+            Set<Square> squares = new LinkedHashSet<>();
+            for (int row = 0; row < this.size; ++row) {
+                for (int column = 0; column < this.size; ++column) {
+                    if (BitBoard.get(this.possible, this.geometry.index(row, column))) {
+                        squares.add(new Square(row, column));
+                    }
+                }
+            }
+            this.possibleSquares = Collections.unmodifiableSet(squares);
+        }
+        return this.possibleSquares;
     }
 
     /**
@@ -215,28 +254,37 @@ public class Board {
      * current player now set to the opponent.
      */
     public Board play(Square square) {
-        Player existingPlayer = this.owners.get(square);
+        int row = square.getRow();
+        int column = square.getColumn();
+        if (!this.geometry.contains(row, column)) {
+            String message = "%s is not on a %dx%d board";
+            throw new IllegalArgumentException(String.format(message, square, this.size, this.size));
+        }
+        Player existingPlayer = this.getOwner(row, column);
         if (existingPlayer != null) {
             String message = "A %s piece already exists at %s";
             throw new IllegalArgumentException(String.format(message, existingPlayer, square));
         }
-        PSet<Square> captures = this.possibleSquares.get(square);
-        if (captures == null) {
-            String message = "%s will not capture any pieces if placed at (%d,%d)";
+        int index = this.geometry.index(row, column);
+        if (!BitBoard.get(this.possible, index)) {
+            String message = "%s will not capture any pieces if placed at %s";
             throw new IllegalArgumentException(String.format(message, this.player, square));
         }
-        PSequence<Move> newMoves = this.moves.plus(new Move(square, this.player));
-        PMap<Square, Player> newOwners = this.owners.plus(square, this.player);
-        for (Square capture : captures) {
-            newOwners = newOwners.plus(capture, this.player);
+        long[] own = this.bits(this.player);
+        long[] opponentBits = this.bits(this.player.opponent());
+        long[] captures = this.geometry.captures(own, opponentBits, row, column);
+        long[] newOwn = own.clone();
+        long[] newOpponent = opponentBits.clone();
+        for (int i = 0; i < captures.length; ++i) {
+            newOwn[i] |= captures[i];
+            newOpponent[i] &= ~captures[i];
         }
+        BitBoard.set(newOwn, index);
+        PSequence<Move> newMoves = this.moves.plus(new Move(square, this.player));
         Player opponent = this.player.opponent();
-        int playerSquareCount = this.playerSquareCounts.get(this.player) + captures.size() + 1;
-        int opponentSquareCount = this.playerSquareCounts.get(opponent) - captures.size();
-        PMap<Player, Integer> newPlayerSquareCounts = this.playerSquareCounts;
-        newPlayerSquareCounts = newPlayerSquareCounts.plus(this.player, playerSquareCount);
-        newPlayerSquareCounts = newPlayerSquareCounts.plus(opponent, opponentSquareCount);
-        return new Board(this.size, opponent, newMoves, newOwners, newPlayerSquareCounts);
+        return this.player == Player.BLACK
+                ? new Board(this.size, opponent, newMoves, newOwn, newOpponent)
+                : new Board(this.size, opponent, newMoves, newOpponent, newOwn);
     }
 
     /**
@@ -254,7 +302,7 @@ public class Board {
         }
         Player opponent = this.player.opponent();
         PSequence<Move> newMoves = this.moves.plus(new Move(Square.PASS, this.player));
-        return new Board(this.size, opponent, newMoves, this.owners, this.playerSquareCounts);
+        return new Board(this.size, opponent, newMoves, this.black, this.white);
     }
 
 }
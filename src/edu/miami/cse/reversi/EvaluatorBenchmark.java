@@ -0,0 +1,103 @@
+package edu.miami.cse.reversi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of {@link BatchEvaluator} scoring positions one at a
+ * time against scoring them in batches, on positions taken from random games.
+ * Both paths score with the same masks and population counts, so the
+ * comparison isolates the batch layout. Batches are timed with the scalar
+ * kernel, and with the Vector API kernel when it is available (run with
+ * {@code --add-modules jdk.incubator.vector}).
+ */
+public class EvaluatorBenchmark {
+
+    /**
+     * Runs the benchmark. Arguments, all optional:
+     * <ol>
+     * <li>the board size (default 8)</li>
+     * <li>the batch size (default 1024)</li>
+     * </ol>
+     */
+    public static void main(String[] args) {
+        int boardSize = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+
+        Board[] boards = randomPositions(boardSize, batchSize, new Random(0));
+        int[] single = new int[batchSize];
+        int[] batched = new int[batchSize];
+
+        List<BatchKernel> kernels = new ArrayList<>();
+        kernels.add(new ScalarBatchKernel());
+        if (!(BatchEvaluator.defaultKernel() instanceof ScalarBatchKernel)) {
+            kernels.add(BatchEvaluator.defaultKernel());
+        }
+
+        System.out.printf("%-10s\t%-20s\t%14s\t%14s\t%7s\n", "mobility", "kernel", "single/s", "batched/s", "speedup");
+        for (int mobilityWeight : new int[]{0, 10}) {
+            for (BatchKernel kernel : kernels) {
+                BatchEvaluator evaluator = new BatchEvaluator(
+                        boardSize, BatchEvaluator.defaultWeights(boardSize), mobilityWeight, kernel);
+
+                // Both paths must agree before their speed is worth comparing
+                evaluator.evaluate(boards, batchSize, Player.BLACK, batched);
+                for (int i = 0; i < batchSize; ++i) {
+                    single[i] = evaluator.evaluate(boards[i], Player.BLACK);
+                    if (single[i] != batched[i]) {
+                        String message = "Position %d scored %d singly but %d batched:\n%s";
+                        throw new IllegalStateException(String.format(message, i, single[i], batched[i], boards[i]));
+                    }
+                }
+
+                double singleRate = rate(() -> {
+                    for (int i = 0; i < batchSize; ++i) {
+                        single[i] = evaluator.evaluate(boards[i], Player.BLACK);
+                    }
+                }, batchSize);
+                double batchedRate = rate(() -> evaluator.evaluate(boards, batchSize, Player.BLACK, batched), batchSize);
+                System.out.printf("%-10d\t%-20s\t%14.0f\t%14.0f\t%6.1fx\n", mobilityWeight,
+                        kernel.getClass().getSimpleName(), singleRate, batchedRate, batchedRate / singleRate);
+            }
+        }
+    }
+
+    /**
+     * Collects the given number of positions by playing random games.
+     */
+    private static Board[] randomPositions(int size, int count, Random random) {
+        List<Board> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            Board board = new Board(size);
+            while (!board.isComplete() && positions.size() < count) {
+                positions.add(board);
+                List<Square> squares = new ArrayList<>(board.getCurrentPossibleSquares());
+                board = squares.isEmpty() ? board.pass() : board.play(squares.get(random.nextInt(squares.size())));
+            }
+        }
+        return positions.toArray(new Board[count]);
+    }
+
+    /**
+     * Runs the given batch of work repeatedly, after a warm-up, and measures it.
+     *
+     * @return The number of positions scored per second.
+     */
+    private static double rate(Runnable batch, int batchSize) {
+        long warmup = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (System.nanoTime() < warmup) {
+            batch.run();
+        }
+        long start = System.nanoTime();
+        long elapsed;
+        long batches = 0;
+        do {
+            batch.run();
+            ++batches;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < TimeUnit.SECONDS.toNanos(2));
+        return batches * batchSize / (elapsed / 1e9);
+    }
+}
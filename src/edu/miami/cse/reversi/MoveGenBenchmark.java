@@ -0,0 +1,61 @@
+package edu.miami.cse.reversi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how move-generation throughput scales with the board size by playing
+ * random games from the initial position and counting the positions generated.
+ */
+public class MoveGenBenchmark {
+
+    /**
+     * Runs the benchmark for each board size given on the command line, or for
+     * 8, 10, 12 and 16 if none are given.
+     */
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[]{8, 10, 12, 16};
+        for (int i = 0; i < args.length; ++i) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        long warmupNanos = TimeUnit.SECONDS.toNanos(1);
+        long measureNanos = TimeUnit.SECONDS.toNanos(3);
+        System.out.printf("%4s\t%10s\t%12s\t%12s\n", "size", "games/s", "positions/s", "moves/s");
+        for (int size : sizes) {
+            run(size, warmupNanos, new long[3]);
+            long[] counts = new long[3];
+            long elapsed = run(size, measureNanos, counts);
+            double seconds = elapsed / 1e9;
+            System.out.printf("%4d\t%10.0f\t%12.0f\t%12.0f\n",
+                    size, counts[0] / seconds, counts[1] / seconds, counts[2] / seconds);
+        }
+    }
+
+    /**
+     * Plays random games on a board of the given size for about the given time.
+     *
+     * @param counts Incremented with the number of games, positions and generated
+     *               moves, in that order.
+     * @return The elapsed time in nanoseconds.
+     */
+    private static long run(int size, long nanos, long[] counts) {
+        Random random = new Random(size);
+        Board initial = new Board(size);
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            Board board = initial;
+            while (!board.isComplete()) {
+                List<Square> squares = new ArrayList<>(board.getCurrentPossibleSquares());
+                counts[1] += 1;
+                counts[2] += squares.size();
+                board = squares.isEmpty() ? board.pass() : board.play(squares.get(random.nextInt(squares.size())));
+            }
+            counts[0] += 1;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return elapsed;
+    }
+}
@@ -0,0 +1,62 @@
+package edu.miami.cse.reversi;
+
+/**
+ * The time a strategy took to choose a square, measured both on the wall clock
+ * and as CPU time of the thread the strategy ran on.
+ */
+public class MoveTime {
+
+    private Square square;
+    private Player player;
+    private long wallNanos;
+    private long cpuNanos;
+
+    /**
+     * Creates a new MoveTime.
+     *
+     * @param square    The square chosen.
+     * @param player    The player who chose the square.
+     * @param wallNanos The elapsed wall-clock time, in nanoseconds.
+     * @param cpuNanos  The CPU time used by the strategy's thread, in nanoseconds.
+     */
+    MoveTime(Square square, Player player, long wallNanos, long cpuNanos) {
+        this.square = square;
+        this.player = player;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+    }
+
+    /**
+     * @return The square chosen.
+     */
+    public Square getSquare() {
+        return this.square;
+    }
+
+    /**
+     * @return The player who chose the square.
+     */
+    public Player getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * @return The elapsed wall-clock time, in nanoseconds.
+     */
+    public long getWallNanos() {
+        return this.wallNanos;
+    }
+
+    /**
+     * @return The CPU time used by the strategy's thread, in nanoseconds.
+     */
+    public long getCpuNanos() {
+        return this.cpuNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s, %s, wall %.1fms, cpu %.1fms)", this.getClass().getSimpleName(),
+                this.square, this.player, this.wallNanos / 1e6, this.cpuNanos / 1e6);
+    }
+}
@@ -0,0 +1,314 @@
+package edu.miami.cse.reversi;
+
+import edu.miami.cse.reversi.strategy.AlphaBeta;
+import edu.miami.cse.reversi.strategy.ProbCut;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analyzes a file of positions with {@link AlphaBeta} on many threads at once,
+ * writing the best move, score and depth of each position as soon as its search
+ * finishes. Results therefore come out in completion order; each line starts
+ * with the index of its position in the input.
+ * <p>
+ * The input is either a {@link PositionFile} or text with one position per
+ * line: the squares row by row as {@code B}, {@code W} or {@code _} (64
+ * characters on an 8x8 board), whitespace, and {@code B} or {@code W} for the
+ * player to move. Blank lines and lines starting with {@code #} are skipped.
+ * <p>
+ * The reader hands positions to the workers through a small bounded queue, and
+ * workers write and flush their results directly, so a slow output stalls the
+ * workers and a busy pool stalls the reader. Memory use does not depend on the
+ * size of the input. If the output can no longer be written, for example because
+ * the reading end of a pipe was closed, the analysis stops.
+ */
+public class PositionAnalysis {
+
+    private static final long PROGRESS_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * A position read from the input, or the end of the input.
+     */
+    private static class Job {
+        static final Job END = new Job(-1, null);
+
+        long index;
+        Board board;
+
+        Job(long index, Board board) {
+            this.index = index;
+            this.board = board;
+        }
+    }
+
+    /**
+     * Runs the analysis. Arguments, all but the first optional:
+     * <ol>
+     * <li>the input file, or {@code -} for standard input</li>
+     * <li>the output file, or {@code -} for standard output (default {@code -})</li>
+     * <li>the depth to search to (default 6)</li>
+     * <li>the number of threads (default: one per core)</li>
+     * <li>a Multi-ProbCut parameter file, as written by
+     * {@link ProbCutCalibration} (default: none)</li>
+     * </ol>
+     * Output lines are {@code index move score depth}, where the move is
+     * {@code (row,column)}, {@code pass} if the player to move has no squares,
+     * or {@code end} if the game is over. Scores are from the point of view of
+     * the player to move; see {@link AlphaBeta#isDecided(int)}. Throughput is
+     * reported on standard error.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: PositionAnalysis input [output] [depth] [threads] [probcut]");
+            System.exit(2);
+        }
+        String input = args[0];
+        String output = args.length > 1 ? args[1] : "-";
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+        int nThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        ProbCut probCut = args.length > 4 ? ProbCut.load(args[4]) : null;
+
+        PositionAnalysis analysis = new PositionAnalysis(depth, probCut);
+        long start = System.nanoTime();
+        long positions;
+        try (InputStream in = input.equals("-") ? System.in : new FileInputStream(input);
+             // Not System.out, which would hide write errors
+             OutputStream out = output.equals("-")
+                     ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(output)) {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            positions = analysis.run(new BufferedInputStream(in, 1 << 16), nThreads, writer);
+            writer.flush();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d positions in %.1fs: %.1f positions/s, %.1f positions/s/thread\n",
+                positions, seconds, positions / seconds, positions / seconds / nThreads);
+    }
+
+    private int depth;
+    private ProbCut probCut;
+    private AtomicLong analyzed;
+
+    /**
+     * @param depth   The depth to search each position to.
+     * @param probCut Multi-ProbCut parameters, or null to search every subtree in full.
+     */
+    PositionAnalysis(int depth, ProbCut probCut) {
+        this.depth = depth;
+        this.probCut = probCut;
+        this.analyzed = new AtomicLong();
+    }
+
+    /**
+     * Analyzes every position in the input on the given number of threads.
+     *
+     * @return The number of positions analyzed.
+     */
+    long run(BufferedInputStream in, int nThreads, PrintWriter out) throws Exception {
+        final BlockingQueue<Job> jobs = new ArrayBlockingQueue<>(4 * nThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < nThreads; ++i) {
+            workers.add(executor.submit(() -> {
+                AlphaBeta search = new AlphaBeta(this.depth, true, this.probCut);
+                for (Job job = jobs.take(); job != Job.END; job = jobs.take()) {
+                    String result = this.analyze(search, job);
+                    synchronized (out) {
+                        out.println(result);
+                        out.flush();
+                        if (out.checkError()) {
+                            throw new IOException("Cannot write results; stopping");
+                        }
+                    }
+                    this.analyzed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        try {
+            long start = System.nanoTime();
+            long lastProgress = start;
+            long index = 0;
+            PositionReader reader = PositionReader.open(in);
+            for (Board board = reader.next(); board != null; board = reader.next()) {
+                this.put(jobs, new Job(index++, board), workers);
+                long now = System.nanoTime();
+                if (now - lastProgress >= PROGRESS_NANOS) {
+                    long done = this.analyzed.get();
+                    System.err.printf("%d positions analyzed: %.1f positions/s\n", done, done / ((now - start) / 1e9));
+                    lastProgress = now;
+                }
+            }
+            for (int i = 0; i < nThreads; ++i) {
+                this.put(jobs, Job.END, workers);
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return this.analyzed.get();
+    }
+
+    /**
+     * Queues a job, waiting while the workers are busy but surfacing a failed
+     * worker instead of reading on or waiting forever.
+     */
+    private void put(BlockingQueue<Job> jobs, Job job, List<Future<?>> workers) throws Exception {
+        do {
+            for (Future<?> worker : workers) {
+                if (worker.isDone()) {
+                    worker.get();
+                }
+            }
+        } while (!jobs.offer(job, 1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Searches one position.
+     *
+     * @return The output line for the position.
+     */
+    private String analyze(AlphaBeta search, Job job) {
+        Board board = job.board;
+        if (board.isComplete()) {
+            Player player = board.getCurrentPlayer();
+            int discs = board.getPlayerSquareCounts().get(player)
+                    - board.getPlayerSquareCounts().get(player.opponent());
+            return String.format("%d end %d 0", job.index, discs);
+        }
+        if (board.getCurrentPossibleSquares().isEmpty()) {
+            search.chooseSquare(board.pass());
+            return String.format("%d pass %d %d", job.index, -search.getScore(), this.depth);
+        }
+        Square square = search.chooseSquare(board);
+        return String.format("%d %s %d %d", job.index, square, search.getScore(), this.depth);
+    }
+
+    /**
+     * Reads positions one at a time from either input format.
+     */
+    private abstract static class PositionReader {
+
+        /**
+         * @return The next position, or null at the end of the input.
+         */
+        abstract Board next() throws IOException;
+
+        /**
+         * Opens a reader for the format of the given input, which is recognized by
+         * the magic number at the start of a {@link PositionFile}.
+         */
+        static PositionReader open(BufferedInputStream in) throws IOException {
+            in.mark(4);
+            DataInputStream data = new DataInputStream(in);
+            int magic;
+            try {
+                magic = data.readInt();
+            } catch (EOFException e) {
+                magic = 0;
+            }
+            in.reset();
+            if (magic == PositionFile.MAGIC) {
+                return new BinaryReader(in);
+            }
+            return new TextReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static class BinaryReader extends PositionReader {
+        private BufferedInputStream buffered;
+        private DataInputStream in;
+        private int size;
+
+        BinaryReader(BufferedInputStream in) throws IOException {
+            this.buffered = in;
+            this.in = new DataInputStream(in);
+            this.size = PositionFile.readHeader(this.in);
+        }
+
+        @Override
+        Board next() throws IOException {
+            // Records have a fixed size, so a clean end of file falls on a record boundary
+            this.buffered.mark(1);
+            if (this.buffered.read() < 0) {
+                return null;
+            }
+            this.buffered.reset();
+            return PositionFile.readBoard(this.in, this.size);
+        }
+    }
+
+    private static class TextReader extends PositionReader {
+        private BufferedReader in;
+        private int lineNumber;
+
+        TextReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        Board next() throws IOException {
+            String line;
+            do {
+                line = this.in.readLine();
+                ++this.lineNumber;
+                if (line == null) {
+                    return null;
+                }
+                line = line.trim();
+            } while (line.isEmpty() || line.startsWith("#"));
+            String[] fields = line.split("\\s+");
+            int size = (int) Math.round(Math.sqrt(fields[0].length()));
+            if (fields.length != 2 || size * size != fields[0].length()
+                    || !(fields[1].equals("B") || fields[1].equals("W"))) {
+                String message = "Line %d: expected squares and player to move, found \"%s\"";
+                throw new IOException(String.format(message, this.lineNumber, line));
+            }
+            BitBoard geometry = BitBoard.forSize(size);
+            long[] black = geometry.empty();
+            long[] white = geometry.empty();
+            for (int row = 0; row < size; ++row) {
+                for (int col = 0; col < size; ++col) {
+                    char c = fields[0].charAt(row * size + col);
+                    if (c == 'B') {
+                        BitBoard.set(black, geometry.index(row, col));
+                    } else if (c == 'W') {
+                        BitBoard.set(white, geometry.index(row, col));
+                    } else if (c != '_') {
+                        String message = "Line %d: unexpected square '%c'";
+                        throw new IOException(String.format(message, this.lineNumber, c));
+                    }
+                }
+            }
+            Player player = fields[1].equals("B") ? Player.BLACK : Player.WHITE;
+            try {
+                return Board.fromBits(size, player, black, white);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(String.format("Line %d: %s", this.lineNumber, e.getMessage()), e);
+            }
+        }
+    }
+}
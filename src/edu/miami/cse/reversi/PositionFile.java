@@ -0,0 +1,107 @@
+package edu.miami.cse.reversi;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The compact on-disk format for positions labeled with the final outcome of the
+ * game they came from. A file starts with a header (a magic number and the
+ * board size) followed by fixed-size records, so that readers can split a file
+ * into ranges without scanning it. Each record holds the black and white
+ * bitboards, the player to move, and the final disc differential from the
+ * point of view of the player to move.
+ */
+class PositionFile {
+
+    static final int MAGIC = 0x52565031; // "RVP1"
+    static final int HEADER_BYTES = 8;
+
+    private PositionFile() {
+    }
+
+    /**
+     * @return The number of bytes taken by one record on a board of the given size.
+     */
+    static int recordBytes(int size) {
+        return 2 * 8 * BitBoard.forSize(size).empty().length + 1 + 2;
+    }
+
+    static void writeHeader(DataOutput out, int size) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(size);
+    }
+
+    /**
+     * @return The board size recorded in the header.
+     * @throws IOException If the input does not start with a position file header.
+     */
+    static int readHeader(DataInput in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            String message = "Not a position file: bad magic number %08x";
+            throw new IOException(String.format(message, magic));
+        }
+        return in.readInt();
+    }
+
+    /**
+     * Writes the current position of the given board.
+     *
+     * @param board  The position to write.
+     * @param result The final disc differential (black minus white) of the game.
+     */
+    static void writeRecord(DataOutput out, Board board, int result) throws IOException {
+        for (long word : board.bits(Player.BLACK)) {
+            out.writeLong(word);
+        }
+        for (long word : board.bits(Player.WHITE)) {
+            out.writeLong(word);
+        }
+        Player player = board.getCurrentPlayer();
+        out.writeByte(player.ordinal());
+        out.writeShort(player == Player.BLACK ? result : -result);
+    }
+
+    /**
+     * Reads one record as a board with no recorded moves, discarding its result.
+     */
+    static Board readBoard(DataInput in, int size) throws IOException {
+        long[] black = BitBoard.forSize(size).empty();
+        long[] white = BitBoard.forSize(size).empty();
+        for (int i = 0; i < black.length; ++i) {
+            black[i] = in.readLong();
+        }
+        for (int i = 0; i < white.length; ++i) {
+            white[i] = in.readLong();
+        }
+        Player player = Player.values()[in.readByte()];
+        in.readShort();
+        return Board.fromBits(size, player, black, white);
+    }
+
+    /**
+     * Reads one record into the given arrays.
+     *
+     * @param own      Filled with the squares of the player to move.
+     * @param opponent Filled with the squares of the opponent.
+     * @return The final disc differential from the point of view of the player to move.
+     */
+    static int readRecord(DataInput in, long[] own, long[] opponent) throws IOException {
+        for (int i = 0; i < own.length; ++i) {
+            own[i] = in.readLong();
+        }
+        for (int i = 0; i < opponent.length; ++i) {
+            opponent[i] = in.readLong();
+        }
+        // Records store black first; swap if white is to move
+        if (in.readByte() == Player.WHITE.ordinal()) {
+            for (int i = 0; i < own.length; ++i) {
+                long word = own[i];
+                own[i] = opponent[i];
+                opponent[i] = word;
+            }
+        }
+        return in.readShort();
+    }
+}
@@ -0,0 +1,179 @@
+package edu.miami.cse.reversi;
+
+import edu.miami.cse.reversi.strategy.AlphaBeta;
+import edu.miami.cse.reversi.strategy.ProbCut;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Produces {@link ProbCut} parameters from recorded positions. Each sampled
+ * position of a {@link PositionFile} is searched with plain alpha-beta at every
+ * depth up to a maximum, and for each game stage and depth pair the deep scores
+ * are regressed on the shallow scores by least squares.
+ */
+public class ProbCutCalibration {
+
+    /**
+     * Runs the calibration. Arguments, all but the first two optional:
+     * <ol>
+     * <li>the position file to sample, for instance from {@link SelfPlay}</li>
+     * <li>the parameter file to write</li>
+     * <li>the number of positions to sample, evenly spread over the file
+     * (default 2000)</li>
+     * <li>the deepest depth to calibrate (default 6)</li>
+     * <li>the number of game stages (default 4)</li>
+     * <li>the cut threshold, in standard deviations (default 1.5)</li>
+     * <li>the number of threads (default: one per core)</li>
+     * </ol>
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: ProbCutCalibration positions output [samples] [maxDepth] [stages] "
+                    + "[threshold] [threads]");
+            System.exit(2);
+        }
+        String input = args[0];
+        String output = args[1];
+        int nSamples = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int maxDepth = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+        int nStages = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        double threshold = args.length > 5 ? Double.parseDouble(args[5]) : 1.5;
+        int nThreads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+
+        List<Board> samples = sample(input, nSamples);
+        System.out.printf("Searching %d positions to depth %d\n", samples.size(), maxDepth);
+        long start = System.nanoTime();
+        List<int[]> scores = search(samples, maxDepth, nThreads);
+        System.out.printf("Searched in %.1fs\n", (System.nanoTime() - start) / 1e9);
+
+        try (PrintWriter writer = new PrintWriter(output)) {
+            writer.printf("# Multi-ProbCut parameters from %d positions of %s\n", samples.size(), input);
+            writer.printf("threshold %s\n", threshold);
+            writer.printf("stages %d\n", nStages);
+            writer.println("# cut stage depth shallowDepth slope intercept sigma");
+            for (int stage = 0; stage < nStages; ++stage) {
+                for (int depth = 3; depth <= maxDepth; ++depth) {
+                    // Shallowest first, since that is the order the search tries them
+                    for (int shallowDepth = depth % 2 == 0 ? 2 : 1; shallowDepth <= depth - 2; shallowDepth += 2) {
+                        double[] fit = fit(samples, scores, stage, nStages, depth, shallowDepth);
+                        if (fit != null) {
+                            writer.printf("cut %d %d %d %.4f %.4f %.4f\n",
+                                    stage, depth, shallowDepth, fit[0], fit[1], fit[2]);
+                            System.out.printf("stage %d depth %d from %d: slope %.3f intercept %.2f sigma %.2f (n=%d)\n",
+                                    stage, depth, shallowDepth, fit[0], fit[1], fit[2], (int) fit[3]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads about {@code nSamples} positions spread evenly over the file, so that
+     * they come from many different games.
+     */
+    private static List<Board> sample(String input, int nSamples) throws Exception {
+        List<Board> samples = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(input), 1 << 16))) {
+            int size = PositionFile.readHeader(in);
+            byte[] skipped = new byte[PositionFile.recordBytes(size)];
+            long nRecords = (new File(input).length() - PositionFile.HEADER_BYTES) / skipped.length;
+            long stride = Math.max(1, nRecords / nSamples);
+            for (long record = 0; record < nRecords && samples.size() < nSamples; ++record) {
+                if (record % stride == 0) {
+                    samples.add(PositionFile.readBoard(in, size));
+                } else {
+                    in.readFully(skipped);
+                }
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Searches each position with plain alpha-beta at depths 1 to {@code maxDepth}.
+     *
+     * @return For each position, its score at each depth (index 0 unused), or
+     * null if the player to move must pass.
+     */
+    private static List<int[]> search(List<Board> samples, int maxDepth, int nThreads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (final Board board : samples) {
+                futures.add(executor.submit((Callable<int[]>) () -> {
+                    if (board.getCurrentPossibleSquares().isEmpty()) {
+                        return null;
+                    }
+                    int[] scores = new int[maxDepth + 1];
+                    for (int depth = 1; depth <= maxDepth; ++depth) {
+                        AlphaBeta search = new AlphaBeta(depth, false);
+                        search.chooseSquare(board);
+                        scores[depth] = search.getScore();
+                    }
+                    return scores;
+                }));
+            }
+            List<int[]> scores = new ArrayList<>();
+            for (Future<int[]> future : futures) {
+                scores.add(future.get());
+            }
+            return scores;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Regresses the deep scores on the shallow scores of the positions in the
+     * given stage, leaving out positions whose game is already decided.
+     *
+     * @return The slope, intercept, residual standard deviation and number of
+     * samples, or null if there are too few samples or the slope is not positive.
+     */
+    private static double[] fit(List<Board> samples, List<int[]> scores, int stage, int nStages,
+                                int depth, int shallowDepth) {
+        double n = 0, sumX = 0, sumY = 0, sumXX = 0, sumXY = 0, sumYY = 0;
+        for (int i = 0; i < samples.size(); ++i) {
+            int[] score = scores.get(i);
+            Board board = samples.get(i);
+            int discs = board.getPlayerSquareCounts().get(Player.BLACK) + board.getPlayerSquareCounts().get(Player.WHITE);
+            if (score == null || ProbCut.stage(discs, board.size() * board.size(), nStages) != stage
+                    || AlphaBeta.isDecided(score[depth]) || AlphaBeta.isDecided(score[shallowDepth])) {
+                continue;
+            }
+            double x = score[shallowDepth];
+            double y = score[depth];
+            n += 1;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+            sumYY += y * y;
+        }
+        double varianceX = n * sumXX - sumX * sumX;
+        if (n < 20 || varianceX <= 0) {
+            return null;
+        }
+        double slope = (n * sumXY - sumX * sumY) / varianceX;
+        double intercept = (sumY - slope * sumX) / n;
+        if (slope <= 0) {
+            return null;
+        }
+        // Residual sum of squares of the fitted line
+        double rss = sumYY - 2 * slope * sumXY - 2 * intercept * sumY
+                + slope * slope * sumXX + 2 * slope * intercept * sumX + n * intercept * intercept;
+        double sigma = Math.sqrt(Math.max(0, rss) / (n - 2));
+        return new double[]{slope, intercept, sigma, n};
+    }
+}
@@ -1,21 +1,54 @@
 package edu.miami.cse.reversi;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A game of Reversi, played by two strategies.
  */
 public class Reversi {
 
+    /**
+     * How the time taken by a strategy is charged against its limits.
+     */
+    public enum Clock {
+        /**
+         * Elapsed wall-clock time. Simple, but a strategy is also charged for time
+         * its thread spends descheduled when the machine is busy.
+         */
+        WALL,
+        /**
+         * CPU time of the thread the strategy runs on, so that results do not depend
+         * on machine load. Work done on other threads the strategy starts is not
+         * counted. As a safeguard against strategies that block without using CPU,
+         * a move is also stopped after {@code WALL_LIMIT_FACTOR} times its limit in
+         * wall-clock time.
+         */
+        CPU
+    }
+
+    private static final int WALL_LIMIT_FACTOR = 10;
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
     private Map<Player, Strategy> strategies;
     private long timeout; //The maximum time allowed to a strategy for choosing a square.
-    private TimeUnit timeoutUnit; //The unit of the timeout
+    private long gameTimeout; //The maximum total time allowed to a strategy for a game, or 0 for no limit.
+    private TimeUnit timeoutUnit; //The unit of the timeouts
+    private Clock clock;
+    private List<MoveTime> moveTimes;
 
 
     /**
-     * Creates a new Reversi game.
+     * Creates a new Reversi game, timed by the wall clock and with no limit on
+     * the total time for a game.
      *
      * @param blackStrategy The strategy used to play the black pieces.
      * @param whiteStrategy The strategy used to play the white pieces.
@@ -27,11 +60,38 @@ public class Reversi {
             Strategy whiteStrategy,
             long timeout,
             TimeUnit timeoutUnit) {
+        this(blackStrategy, whiteStrategy, timeout, 0, timeoutUnit, Clock.WALL);
+    }
+
+    /**
+     * Creates a new Reversi game.
+     *
+     * @param blackStrategy The strategy used to play the black pieces.
+     * @param whiteStrategy The strategy used to play the white pieces.
+     * @param timeout       The maximum time allowed to a strategy for choosing a square.
+     * @param gameTimeout   The maximum total time allowed to a strategy over the whole
+     *                      game, chess-clock style, or 0 for no limit.
+     * @param timeoutUnit   The unit of the timeouts
+     * @param clock         How time is measured against the timeouts.
+     */
+    Reversi(
+            Strategy blackStrategy,
+            Strategy whiteStrategy,
+            long timeout,
+            long gameTimeout,
+            TimeUnit timeoutUnit,
+            Clock clock) {
+        if (clock == Clock.CPU && !ManagementFactory.getThreadMXBean().isThreadCpuTimeSupported()) {
+            throw new IllegalArgumentException("This JVM cannot measure thread CPU time");
+        }
         this.strategies = new HashMap<>();
         this.strategies.put(Player.BLACK, blackStrategy);
         this.strategies.put(Player.WHITE, whiteStrategy);
         this.timeout = timeout;
+        this.gameTimeout = gameTimeout;
         this.timeoutUnit = timeoutUnit;
+        this.clock = clock;
+        this.moveTimes = Collections.emptyList();
     }
 
     /**
@@ -42,30 +102,101 @@ public class Reversi {
      * @throws StrategyTimedOutException If a strategy exceeds the alloted time to choose a square.
      */
     public Board play(Board board) throws StrategyTimedOutException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+            threads.setThreadCpuTimeEnabled(true);
+        }
         ExecutorService executor = Executors.newSingleThreadExecutor();
+        this.moveTimes = new ArrayList<>();
+        Map<Player, Long> used = new EnumMap<>(Player.class); //Time charged to each player so far
+        used.put(Player.BLACK, 0L);
+        used.put(Player.WHITE, 0L);
         Board curr = board;
-        while (!curr.isComplete()) {
-            if (curr.getCurrentPossibleSquares().isEmpty()) {
-                curr = curr.pass();
-            } else {
-                Player player = curr.getCurrentPlayer();
-                final Strategy strategy = this.strategies.get(player);
-                final Board boardForFuture = curr;
-                Future<Square> future = executor.submit(() -> strategy.chooseSquare(boardForFuture));
-                Square square;
-                try {
-                    square = future.get(this.timeout, this.timeoutUnit);
-                } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                    future.cancel(true);
-                    throw new StrategyTimedOutException(strategy, this.strategies.get(player.opponent()));
+        try {
+            while (!curr.isComplete()) {
+                if (curr.getCurrentPossibleSquares().isEmpty()) {
+                    curr = curr.pass();
+                } else {
+                    Player player = curr.getCurrentPlayer();
+                    final Strategy strategy = this.strategies.get(player);
+                    final Board boardForFuture = curr;
+                    long limit = this.timeoutUnit.toNanos(this.timeout);
+                    if (this.gameTimeout > 0) {
+                        limit = Math.min(limit, this.timeoutUnit.toNanos(this.gameTimeout) - used.get(player));
+                    }
+                    final AtomicLong threadId = new AtomicLong(-1);
+                    final AtomicLong cpuStart = new AtomicLong();
+                    final AtomicLong wallTime = new AtomicLong();
+                    final AtomicLong cpuTime = new AtomicLong();
+                    Future<Square> future = executor.submit(() -> {
+                        long wall = System.nanoTime();
+                        cpuStart.set(threads.getCurrentThreadCpuTime());
+                        threadId.set(Thread.currentThread().getId());
+                        try {
+                            return strategy.chooseSquare(boardForFuture);
+                        } finally {
+                            cpuTime.set(threads.getCurrentThreadCpuTime() - cpuStart.get());
+                            wallTime.set(System.nanoTime() - wall);
+                        }
+                    });
+                    Square square;
+                    try {
+                        square = this.await(future, limit, threads, threadId, cpuStart, cpuTime);
+                    } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                        future.cancel(true);
+                        throw new StrategyTimedOutException(strategy, this.strategies.get(player.opponent()));
+                    }
+                    long charged = this.clock == Clock.CPU ? cpuTime.get() : wallTime.get();
+                    used.put(player, used.get(player) + charged);
+                    this.moveTimes.add(new MoveTime(square, player, wallTime.get(), cpuTime.get()));
+                    curr = curr.play(square);
                 }
-                curr = curr.play(square);
             }
+        } finally {
+            executor.shutdownNow();
         }
-        executor.shutdownNow();
         return curr;
     }
 
+    /**
+     * Waits for a strategy to choose a square within the given limit, measured by
+     * this game's clock. With the CPU clock, the limit is checked while polling
+     * and again once the square is chosen, so that a move finishing over its
+     * limit between two polls still times out.
+     *
+     * @param threadId The id of the thread running the strategy, once it has started.
+     * @param cpuStart The CPU time of that thread when the strategy started.
+     * @param cpuTime  The CPU time taken by the strategy, once it has finished.
+     */
+    private Square await(Future<Square> future, long limit, ThreadMXBean threads, AtomicLong threadId,
+                         AtomicLong cpuStart, AtomicLong cpuTime)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (limit <= 0) {
+            throw new TimeoutException();
+        }
+        if (this.clock == Clock.WALL) {
+            return future.get(limit, TimeUnit.NANOSECONDS);
+        }
+        long wallDeadline = System.nanoTime() + WALL_LIMIT_FACTOR * limit;
+        while (true) {
+            Square square;
+            try {
+                square = future.get(Math.min(POLL_NANOS, limit), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                long id = threadId.get();
+                long cpu = id < 0 ? 0 : threads.getThreadCpuTime(id) - cpuStart.get();
+                if (cpu >= limit || System.nanoTime() >= wallDeadline) {
+                    throw e;
+                }
+                continue;
+            }
+            if (cpuTime.get() > limit) {
+                throw new TimeoutException();
+            }
+            return square;
+        }
+    }
+
     /**
      * Gets the winning strategy from a board.
      *
@@ -76,5 +207,13 @@ public class Reversi {
         return this.strategies.get(board.getWinner());
     }
 
+    /**
+     * @return The time taken for each square chosen in the last call to
+     * {@link #play(Board)}, in the order the squares were played.
+     */
+    public List<MoveTime> getMoveTimes() {
+        return Collections.unmodifiableList(this.moveTimes);
+    }
+
 
 }
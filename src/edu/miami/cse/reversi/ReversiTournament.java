@@ -14,12 +14,17 @@ import java.util.concurrent.TimeUnit;
 public class ReversiTournament {
     /**
      * Runs a round-robin tournament over Reversi strategies.
+     *
+     * @param args Optionally, the board size to play on (8 if not given).
      */
     public static void main(String[] args) {
 
         int nGames = 5;
+        int boardSize = args.length > 0 ? Integer.parseInt(args[0]) : 8;
         long timeout = 1;
+        long gameTimeout = 0; // Total time per strategy per game; 0 for no limit
         TimeUnit timeoutUnit = TimeUnit.SECONDS;
+        Reversi.Clock clock = Reversi.Clock.WALL; // CPU for fair timing when the machine is loaded
 
         // List of the strategies in the tournament
         List<Strategy> strategies = Lists.newArrayList();
@@ -36,7 +41,7 @@ public class ReversiTournament {
 
         // Run N rounds, pairing each strategy with each other strategy. There will
         // actually be 2N games since each strategy gets to be both black and white
-        Board board = new Board();
+        Board board = new Board(boardSize);
         for (int game = 0; game < nGames; ++game) {
             for (int i = 0; i < strategies.size(); ++i) {
                 for (int j = i + 1; j < strategies.size(); ++j) {
@@ -46,7 +51,7 @@ public class ReversiTournament {
                     Strategy winner;
 
                     // first game: strategy1=BLACK, strategy2=WHITE
-                    reversi = new Reversi(strategy1, strategy2, timeout, timeoutUnit);
+                    reversi = new Reversi(strategy1, strategy2, timeout, gameTimeout, timeoutUnit, clock);
                     try {
                         winner = reversi.getWinner(reversi.play(board));
                     } catch (StrategyTimedOutException e) {
@@ -58,7 +63,7 @@ public class ReversiTournament {
                     }
 
                     // second game: strategy2=BLACK, strategy1=WHITE
-                    reversi = new Reversi(strategy2, strategy1, timeout, timeoutUnit);
+                    reversi = new Reversi(strategy2, strategy1, timeout, gameTimeout, timeoutUnit, clock);
                     try {
                         winner = reversi.getWinner(reversi.play(board));
                     } catch (StrategyTimedOutException e) {
@@ -0,0 +1,41 @@
+package edu.miami.cse.reversi;
+
+/**
+ * A {@link BatchKernel} in plain Java, one position at a time. Used when the
+ * Vector API kernel is not available, and for the positions left over after
+ * the last full vector.
+ */
+final class ScalarBatchKernel implements BatchKernel {
+
+    @Override
+    public void addSquares(long[] own, long[] opponent, int count, long mask, int weight, long[] totals) {
+        this.addSquares(own, opponent, 0, count, mask, weight, totals);
+    }
+
+    /**
+     * Same as {@link #addSquares(long[], long[], int, long, int, long[])}, for the
+     * positions from {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    void addSquares(long[] own, long[] opponent, int from, int to, long mask, int weight, long[] totals) {
+        for (int i = from; i < to; ++i) {
+            totals[i] += weight * (Long.bitCount(own[i] & mask) - Long.bitCount(opponent[i] & mask));
+        }
+    }
+
+    @Override
+    public void addMobility(BitBoard geometry, long[] own, long[] opponent, int count, int weight, long[] totals) {
+        this.addMobility(geometry, own, opponent, 0, count, weight, totals);
+    }
+
+    /**
+     * Same as {@link #addMobility(BitBoard, long[], long[], int, int, long[])},
+     * for the positions from {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    void addMobility(BitBoard geometry, long[] own, long[] opponent, int from, int to, int weight, long[] totals) {
+        for (int i = from; i < to; ++i) {
+            int ownMoves = Long.bitCount(geometry.possibleMoves(own[i], opponent[i]));
+            int opponentMoves = Long.bitCount(geometry.possibleMoves(opponent[i], own[i]));
+            totals[i] += weight * (ownMoves - opponentMoves);
+        }
+    }
+}
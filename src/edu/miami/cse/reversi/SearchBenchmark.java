@@ -0,0 +1,99 @@
+package edu.miami.cse.reversi;
+
+import edu.miami.cse.reversi.strategy.AlphaBeta;
+import edu.miami.cse.reversi.strategy.ProbCut;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the number of positions visited by plain alpha-beta and by Principal
+ * Variation Search at equal depth, on a fixed suite of positions taken from
+ * seeded random games. Given {@link ProbCut} parameters, also reports Principal
+ * Variation Search with Multi-ProbCut, and how often it picks a different
+ * square.
+ */
+public class SearchBenchmark {
+
+    /**
+     * Runs the benchmark. Arguments, all optional:
+     * <ol>
+     * <li>the deepest search depth to compare (default 6)</li>
+     * <li>the number of positions in the suite (default 40)</li>
+     * <li>the board size (default 8)</li>
+     * <li>a ProbCut parameter file (default: none)</li>
+     * </ol>
+     */
+    public static void main(String[] args) throws Exception {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int nPositions = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        int boardSize = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        ProbCut probCut = args.length > 3 ? ProbCut.load(args[3]) : null;
+
+        List<Board> suite = positionSuite(boardSize, nPositions, new Random(0));
+        System.out.printf("%5s\t%12s\t%12s\t%9s\t%8s\t%8s",
+                "depth", "alpha-beta", "pvs", "reduction", "ab ms", "pvs ms");
+        System.out.printf(probCut == null ? "\n" : "\t%12s\t%8s\t%8s\n", "pvs+mpc", "mpc ms", "changed");
+        for (int depth = 1; depth <= maxDepth; ++depth) {
+            AlphaBeta plain = new AlphaBeta(depth, false);
+            AlphaBeta pvs = new AlphaBeta(depth, true);
+            AlphaBeta mpc = new AlphaBeta(depth, true, probCut);
+            long plainNodes = 0, pvsNodes = 0, mpcNodes = 0, plainNanos = 0, pvsNanos = 0, mpcNanos = 0;
+            int changed = 0;
+            for (Board board : suite) {
+                long start = System.nanoTime();
+                plain.chooseSquare(board);
+                plainNanos += System.nanoTime() - start;
+                plainNodes += plain.getNodeCount();
+
+                start = System.nanoTime();
+                Square square = pvs.chooseSquare(board);
+                pvsNanos += System.nanoTime() - start;
+                pvsNodes += pvs.getNodeCount();
+
+                if (probCut != null) {
+                    start = System.nanoTime();
+                    if (!mpc.chooseSquare(board).equals(square)) {
+                        ++changed;
+                    }
+                    mpcNanos += System.nanoTime() - start;
+                    mpcNodes += mpc.getNodeCount();
+                }
+
+                // Both searches must agree on the minimax value at this depth
+                if (plain.getScore() != pvs.getScore()) {
+                    String message = "Depth %d: alpha-beta scored %d but PVS scored %d:\n%s";
+                    throw new IllegalStateException(String.format(message, depth, plain.getScore(), pvs.getScore(), board));
+                }
+            }
+            System.out.printf("%5d\t%12d\t%12d\t%8.1f%%\t%8d\t%8d", depth, plainNodes, pvsNodes,
+                    100.0 * (plainNodes - pvsNodes) / plainNodes, plainNanos / 1000000, pvsNanos / 1000000);
+            if (probCut != null) {
+                System.out.printf("\t%12d\t%8d\t%8d", mpcNodes, mpcNanos / 1000000, changed);
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Collects positions spread over the game by playing seeded random games and
+     * keeping one position from each, at a ply between 8 and the board's midgame.
+     */
+    static List<Board> positionSuite(int size, int count, Random random) {
+        List<Board> suite = new ArrayList<>();
+        int lastPly = size * size / 2;
+        while (suite.size() < count) {
+            int ply = 8 + random.nextInt(lastPly - 8);
+            Board board = new Board(size);
+            for (int i = 0; i < ply && !board.isComplete(); ++i) {
+                List<Square> squares = new ArrayList<>(board.getCurrentPossibleSquares());
+                board = squares.isEmpty() ? board.pass() : board.play(squares.get(random.nextInt(squares.size())));
+            }
+            if (!board.isComplete() && !board.getCurrentPossibleSquares().isEmpty()) {
+                suite.add(board);
+            }
+        }
+        return suite;
+    }
+}
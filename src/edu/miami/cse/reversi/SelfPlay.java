@@ -0,0 +1,172 @@
+package edu.miami.cse.reversi;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates training positions by playing a strategy against itself on many
+ * threads at once. Each game starts with a few random moves so that games
+ * differ, and every position after the opening is written to a
+ * {@link PositionFile} together with the final disc differential of its game.
+ * The positions can then be fitted with {@link WeightFitter}.
+ */
+public class SelfPlay {
+
+    /**
+     * Runs the self-play generator. Arguments, all but the first two optional:
+     * <ol>
+     * <li>the number of games to play</li>
+     * <li>the output file</li>
+     * <li>the fully qualified class name of the strategy (default
+     * {@code edu.miami.cse.reversi.strategy.AlphaBeta})</li>
+     * <li>the board size (default 8)</li>
+     * <li>the number of random opening moves (default 8)</li>
+     * <li>the number of threads (default: one per core)</li>
+     * <li>the random seed for the openings (default 0)</li>
+     * </ol>
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: SelfPlay games output [strategy] [size] [openingMoves] [threads] [seed]");
+            System.exit(2);
+        }
+        int nGames = Integer.parseInt(args[0]);
+        String output = args[1];
+        String strategyName = args.length > 2 ? args[2] : "edu.miami.cse.reversi.strategy.AlphaBeta";
+        int boardSize = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        int openingMoves = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+        int nThreads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 0;
+
+        Class<? extends Strategy> strategyClass = Class.forName(strategyName).asSubclass(Strategy.class);
+        SelfPlay selfPlay = new SelfPlay(strategyClass, boardSize, openingMoves, seed);
+
+        long start = System.nanoTime();
+        long positions;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(output), 1 << 16))) {
+            positions = selfPlay.run(nGames, nThreads, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d positions in %.1fs: %.0f positions/s, %.0f positions/s/thread\n",
+                nGames, positions, seconds, positions / seconds, positions / seconds / nThreads);
+    }
+
+    private Class<? extends Strategy> strategyClass;
+    private int size;
+    private int openingMoves;
+    private long seed;
+
+    /**
+     * @param strategyClass The strategy playing both sides. A new instance is created
+     *                      for every game, so the strategy need not be thread-safe.
+     * @param size          The board size.
+     * @param openingMoves  The number of random moves played before the strategy takes over.
+     * @param seed          The seed from which each game's opening is derived.
+     */
+    SelfPlay(Class<? extends Strategy> strategyClass, int size, int openingMoves, long seed) {
+        this.strategyClass = strategyClass;
+        this.size = size;
+        this.openingMoves = openingMoves;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays the given number of games on the given number of threads, writing a
+     * {@link PositionFile} to the output. Finished games are handed to the calling
+     * thread through a bounded queue, so workers wait if writing falls behind.
+     *
+     * @return The number of positions written.
+     */
+    long run(int nGames, int nThreads, DataOutputStream out) throws Exception {
+        PositionFile.writeHeader(out, this.size);
+        final BlockingQueue<byte[]> games = new ArrayBlockingQueue<>(4 * nThreads);
+        final AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < nThreads; ++i) {
+            workers.add(executor.submit(() -> {
+                for (int game = nextGame.getAndIncrement(); game < nGames; game = nextGame.getAndIncrement()) {
+                    games.put(this.playGame(game));
+                }
+                return null;
+            }));
+        }
+        long positions = 0;
+        int recordBytes = PositionFile.recordBytes(this.size);
+        try {
+            for (int written = 0; written < nGames; ) {
+                byte[] game = games.poll(1, TimeUnit.SECONDS);
+                if (game != null) {
+                    out.write(game);
+                    positions += game.length / recordBytes;
+                    ++written;
+                } else {
+                    // Surface a failed worker instead of waiting forever
+                    for (Future<?> worker : workers) {
+                        if (worker.isDone()) {
+                            worker.get();
+                        }
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return positions;
+    }
+
+    /**
+     * Plays one game and encodes its positions.
+     *
+     * @param game The index of the game, used to derive its random opening.
+     * @return The records of every position after the opening where the player
+     * to move had a choice to make.
+     */
+    private byte[] playGame(int game) throws Exception {
+        Random random = new Random(this.seed * 31 + game);
+        Strategy strategy = this.strategyClass.newInstance();
+        Board board = new Board(this.size);
+        List<Board> positions = new ArrayList<>();
+        int ply = 0;
+        while (!board.isComplete()) {
+            if (board.getCurrentPossibleSquares().isEmpty()) {
+                board = board.pass();
+                continue;
+            }
+            Square square;
+            if (ply < this.openingMoves) {
+                List<Square> squares = new ArrayList<>(board.getCurrentPossibleSquares());
+                square = squares.get(random.nextInt(squares.size()));
+            } else {
+                positions.add(board);
+                square = strategy.chooseSquare(board);
+            }
+            board = board.play(square);
+            ++ply;
+        }
+        Integer black = board.getPlayerSquareCounts().get(Player.BLACK);
+        Integer white = board.getPlayerSquareCounts().get(Player.WHITE);
+        int result = black - white;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(positions.size() * PositionFile.recordBytes(this.size));
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Board position : positions) {
+            PositionFile.writeRecord(out, position, result);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,162 @@
+package edu.miami.cse.reversi;
+
+/**
+ * A sequential probability ratio test on the results of a match played in
+ * pairs of games, where each pair plays the same opening once with each
+ * strategy as black. The score of a pair (0, 1/4, 1/2, 3/4 or 1 for the first
+ * strategy) is one sample, so the variance removed by swapping colors and
+ * sharing openings is also removed from the test.
+ * <p>
+ * The log-likelihood ratio uses the normal approximation for the mean score:
+ * for hypotheses H0 (Elo difference {@code elo0}) and H1 ({@code elo1}),
+ * {@code LLR = n (s1 - s0) (2 s - s0 - s1) / (2 var)}, where {@code s} and
+ * {@code var} are the sample mean and variance of the pair scores and
+ * {@code s0}, {@code s1} the expected scores under each hypothesis.
+ */
+class Sprt {
+
+    /**
+     * The state of the test.
+     */
+    enum Status {
+        /**
+         * Keep playing.
+         */
+        CONTINUE,
+        /**
+         * H0 accepted: the first strategy is not {@code elo1} stronger.
+         */
+        H0,
+        /**
+         * H1 accepted: the first strategy is at least {@code elo1} stronger.
+         */
+        H1
+    }
+
+    private double s0;
+    private double s1;
+    private double lower;
+    private double upper;
+    private int pairs;
+    private double sum; //Sum of pair scores
+    private double sumOfSquares; //Sum of squared pair scores
+    private int wins, draws, losses; //Per game, for the first strategy
+
+    /**
+     * @param elo0  The Elo difference under the null hypothesis.
+     * @param elo1  The Elo difference under the alternative hypothesis.
+     * @param alpha The probability of accepting H1 when H0 is true.
+     * @param beta  The probability of accepting H0 when H1 is true.
+     */
+    Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) {
+            String message = "elo1 (%s) must be greater than elo0 (%s)";
+            throw new IllegalArgumentException(String.format(message, elo1, elo0));
+        }
+        this.s0 = expectedScore(elo0);
+        this.s1 = expectedScore(elo1);
+        this.lower = Math.log(beta / (1 - alpha));
+        this.upper = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * @return The expected score of a player that is the given number of Elo
+     * points stronger than their opponent.
+     */
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * @return The Elo difference corresponding to the given expected score.
+     */
+    static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * @return The given score, moved strictly between 0 and 1 so that its Elo
+     * difference is finite.
+     */
+    private static double clamp(double score) {
+        double epsilon = 1e-6;
+        return Math.max(epsilon, Math.min(1 - epsilon, score));
+    }
+
+    /**
+     * Records the two games of a pair.
+     *
+     * @param first  The score of the first strategy in the first game: 1, 0.5 or 0.
+     * @param second The score of the first strategy in the second game.
+     */
+    void addPair(double first, double second) {
+        for (double score : new double[]{first, second}) {
+            if (score == 1) {
+                ++this.wins;
+            } else if (score == 0) {
+                ++this.losses;
+            } else {
+                ++this.draws;
+            }
+        }
+        double pairScore = (first + second) / 2;
+        ++this.pairs;
+        this.sum += pairScore;
+        this.sumOfSquares += pairScore * pairScore;
+    }
+
+    /**
+     * @return The mean score of the first strategy.
+     */
+    double score() {
+        return this.pairs == 0 ? 0.5 : this.sum / this.pairs;
+    }
+
+    /**
+     * @return The variance of a pair score.
+     */
+    private double variance() {
+        double mean = this.score();
+        return this.pairs == 0 ? 0 : this.sumOfSquares / this.pairs - mean * mean;
+    }
+
+    /**
+     * @return The log-likelihood ratio of H1 against H0. The mean and variance
+     * include one pseudo-pair lost and one won, so that a one-sided record (every
+     * pair won, say) still has a variance and the test can stop on it.
+     */
+    double llr() {
+        double n = this.pairs + 2;
+        double mean = (this.sum + 1) / n;
+        double variance = (this.sumOfSquares + 1) / n - mean * mean;
+        return n * (this.s1 - this.s0) * (2 * mean - this.s0 - this.s1) / (2 * variance);
+    }
+
+    Status status() {
+        double llr = this.llr();
+        if (llr >= this.upper) {
+            return Status.H1;
+        } else if (llr <= this.lower) {
+            return Status.H0;
+        }
+        return Status.CONTINUE;
+    }
+
+    /**
+     * @return The lower and upper bounds of the 95% confidence interval for the
+     * Elo difference, clamped to scores strictly between 0 and 1.
+     */
+    double[] eloInterval() {
+        double error = this.pairs == 0 ? 0.5 : 1.96 * Math.sqrt(this.variance() / this.pairs);
+        return new double[]{elo(clamp(this.score() - error)), elo(clamp(this.score() + error))};
+    }
+
+    @Override
+    public String toString() {
+        double elo = elo(clamp(this.score()));
+        double[] interval = this.eloInterval();
+        return String.format("W/D/L %d/%d/%d, Elo %.1f [%.1f, %.1f], LLR %.2f [%.2f, %.2f]",
+                this.wins, this.draws, this.losses, elo, interval[0], interval[1],
+                this.llr(), this.lower, this.upper);
+    }
+}
@@ -0,0 +1,108 @@
+package edu.miami.cse.reversi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a match between two strategies until a sequential probability ratio
+ * test decides whether the first is stronger than the second by a given Elo
+ * margin, instead of playing a fixed number of games as
+ * {@link ReversiTournament} does. Games are played in pairs from a shared
+ * random opening, once with each strategy as black.
+ */
+public class SprtMatch {
+
+    /**
+     * Runs the match. Arguments, all but the first two optional:
+     * <ol>
+     * <li>the fully qualified class name of the strategy under test</li>
+     * <li>the fully qualified class name of the baseline strategy</li>
+     * <li>the Elo difference under H0 (default 0)</li>
+     * <li>the Elo difference under H1 (default 10)</li>
+     * <li>alpha = beta, the error probability of the test (default 0.05)</li>
+     * <li>the maximum number of game pairs (default 10000)</li>
+     * <li>the number of random opening moves (default 6)</li>
+     * <li>the board size (default 8)</li>
+     * <li>the random seed for the openings (default 0)</li>
+     * </ol>
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: SprtMatch strategy baseline [elo0] [elo1] [alpha] [maxPairs] "
+                    + "[openingMoves] [size] [seed]");
+            System.exit(2);
+        }
+        Strategy strategy = Class.forName(args[0]).asSubclass(Strategy.class).newInstance();
+        Strategy baseline = Class.forName(args[1]).asSubclass(Strategy.class).newInstance();
+        double elo0 = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        double elo1 = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+        double alpha = args.length > 4 ? Double.parseDouble(args[4]) : 0.05;
+        int maxPairs = args.length > 5 ? Integer.parseInt(args[5]) : 10000;
+        int openingMoves = args.length > 6 ? Integer.parseInt(args[6]) : 6;
+        int boardSize = args.length > 7 ? Integer.parseInt(args[7]) : 8;
+        long seed = args.length > 8 ? Long.parseLong(args[8]) : 0;
+        long timeout = 1;
+        TimeUnit timeoutUnit = TimeUnit.SECONDS;
+
+        Sprt sprt = new Sprt(elo0, elo1, alpha, alpha);
+        Random random = new Random(seed);
+        Sprt.Status status = Sprt.Status.CONTINUE;
+        for (int pair = 1; pair <= maxPairs && status == Sprt.Status.CONTINUE; ++pair) {
+            Board opening = randomOpening(new Board(boardSize), openingMoves, random);
+            double first = score(new Reversi(strategy, baseline, timeout, timeoutUnit), opening, strategy);
+            double second = score(new Reversi(baseline, strategy, timeout, timeoutUnit), opening, strategy);
+            sprt.addPair(first, second);
+            status = sprt.status();
+            if (pair % 10 == 0 || status != Sprt.Status.CONTINUE) {
+                System.out.printf("%6d pairs: %s\n", pair, sprt);
+            }
+        }
+        switch (status) {
+            case H1:
+                System.out.printf("H1 accepted: %s is at least %.1f Elo stronger\n", args[0], elo1);
+                break;
+            case H0:
+                System.out.printf("H0 accepted: %s is not %.1f Elo stronger\n", args[0], elo1);
+                break;
+            default:
+                System.out.printf("No decision after %d pairs\n", maxPairs);
+        }
+    }
+
+    /**
+     * Plays the given number of random moves. Stops early, rather than ending
+     * the game, if an opening would otherwise leave no moves to play.
+     */
+    static Board randomOpening(Board board, int moves, Random random) {
+        for (int ply = 0; ply < moves; ++ply) {
+            List<Square> squares = new ArrayList<>(board.getCurrentPossibleSquares());
+            if (squares.isEmpty()) {
+                break;
+            }
+            Board next = board.play(squares.get(random.nextInt(squares.size())));
+            if (next.isComplete()) {
+                break;
+            }
+            board = next;
+        }
+        return board;
+    }
+
+    /**
+     * Plays one game from the given position.
+     *
+     * @return The score of the given strategy: 1 for a win, 0.5 for a draw, 0 for
+     * a loss. A strategy that times out loses.
+     */
+    private static double score(Reversi reversi, Board board, Strategy strategy) {
+        Strategy winner;
+        try {
+            winner = reversi.getWinner(reversi.play(board));
+        } catch (StrategyTimedOutException e) {
+            winner = e.getOpponentStrategy();
+        }
+        return winner == null ? 0.5 : winner == strategy ? 1 : 0;
+    }
+}
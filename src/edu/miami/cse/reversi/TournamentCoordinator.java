@@ -0,0 +1,379 @@
+package edu.miami.cse.reversi;
+
+import com.google.common.base.Functions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a round-robin tournament like {@link ReversiTournament}, but plays the
+ * games in separate worker JVMs, so that one misbehaving strategy cannot take
+ * down the whole run and each worker has its own heap and garbage collector.
+ * <p>
+ * Every game of every pairing is a work unit. The coordinator listens on a TCP
+ * port and starts a number of local {@link TournamentWorker} processes, which
+ * connect to it; more workers, on this or other hosts, may connect at any time.
+ * A worker that crashes, or takes too long over a game, is stopped and its game
+ * put back on the queue, and local workers are restarted. A game that fails on
+ * {@code MAX_ATTEMPTS} workers is abandoned. A local worker that exits
+ * {@code MAX_CONSECUTIVE_FAILURES} times in a row without finishing a game is
+ * not restarted again, and once no local workers are left the games not yet
+ * played are abandoned.
+ * <p>
+ * The protocol is line-based text. A worker sends {@code READY}, optionally
+ * followed by a name to tell it apart from other workers; the
+ * coordinator answers {@code GAME id blackClass whiteClass boardSize
+ * timeoutMillis clock}, or {@code DONE} when no games are left; the worker
+ * answers {@code RESULT id BLACK|WHITE|DRAW timedOutPlayer|-}, or
+ * {@code ERROR id message} if it cannot play the game at all.
+ */
+public class TournamentCoordinator {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_CONSECUTIVE_FAILURES = 20;
+
+    /**
+     * One game of the tournament.
+     */
+    private static class WorkUnit {
+        int id;
+        Strategy black;
+        Strategy white;
+        int attempts;
+
+        WorkUnit(int id, Strategy black, Strategy white) {
+            this.id = id;
+            this.black = black;
+            this.white = white;
+        }
+    }
+
+    /**
+     * Runs the tournament. Arguments, all optional:
+     * <ol>
+     * <li>the number of local worker processes (default: one per core)</li>
+     * <li>the number of rounds; each pairing plays two games per round (default 5)</li>
+     * <li>the port to listen on, 0 for any free port (default 0)</li>
+     * <li>the fully qualified class names of the strategies (default
+     * {@code RandomStrategy} and {@code AlphaBeta})</li>
+     * </ol>
+     * The coordinator listens on the loopback interface only, unless the
+     * {@code reversi.bind} system property gives another address to listen on,
+     * such as {@code 0.0.0.0} for workers on other hosts.
+     */
+    public static void main(String[] args) throws Exception {
+        int nWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int nGames = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int boardSize = 8;
+        long timeout = 1;
+        TimeUnit timeoutUnit = TimeUnit.SECONDS;
+        Reversi.Clock clock = Reversi.Clock.CPU;
+
+        // List of the strategies in the tournament
+        List<Strategy> strategies = Lists.newArrayList();
+        if (args.length > 3) {
+            for (int i = 3; i < args.length; ++i) {
+                strategies.add(Class.forName(args[i]).asSubclass(Strategy.class).newInstance());
+            }
+        } else {
+            strategies.add(Class.forName("edu.miami.cse.reversi.strategy.RandomStrategy")
+                    .asSubclass(Strategy.class).newInstance());
+            strategies.add(Class.forName("edu.miami.cse.reversi.strategy.AlphaBeta")
+                    .asSubclass(Strategy.class).newInstance());
+        }
+
+        TournamentCoordinator coordinator = new TournamentCoordinator(boardSize, timeoutUnit.toMillis(timeout), clock);
+        int id = 0;
+        for (int game = 0; game < nGames; ++game) {
+            for (int i = 0; i < strategies.size(); ++i) {
+                for (int j = i + 1; j < strategies.size(); ++j) {
+                    coordinator.add(new WorkUnit(id++, strategies.get(i), strategies.get(j)));
+                    coordinator.add(new WorkUnit(id++, strategies.get(j), strategies.get(i)));
+                }
+            }
+        }
+        String bind = System.getProperty("reversi.bind", InetAddress.getLoopbackAddress().getHostAddress());
+        Map<Strategy, Integer> wins = coordinator.run(InetAddress.getByName(bind), port, nWorkers);
+
+        // rank strategies by number of wins
+        Ordering<Strategy> byWins = Ordering.natural().onResultOf(Functions.forMap(wins)).reverse();
+        for (Strategy strategy : byWins.sortedCopy(wins.keySet())) {
+            System.out.printf("%4d\t%s\n", wins.get(strategy), strategy.getClass().getName());
+        }
+    }
+
+    private int boardSize;
+    private long timeoutMillis;
+    private Reversi.Clock clock;
+    private List<WorkUnit> units;
+    private BlockingQueue<WorkUnit> queue;
+    private Map<Strategy, Integer> wins;
+    private Map<String, Integer> gamesByWorker; //Games finished by each named worker
+    private CountDownLatch remaining;
+    private AtomicInteger localWorkers; //Local workers that are still being restarted
+    private volatile boolean finished;
+
+    TournamentCoordinator(int boardSize, long timeoutMillis, Reversi.Clock clock) {
+        this.boardSize = boardSize;
+        this.timeoutMillis = timeoutMillis;
+        this.clock = clock;
+        this.units = Lists.newArrayList();
+        this.queue = new LinkedBlockingQueue<>();
+        this.wins = Maps.newHashMap();
+        this.gamesByWorker = Maps.newHashMap();
+    }
+
+    private void add(WorkUnit unit) {
+        this.units.add(unit);
+        this.wins.put(unit.black, 0);
+        this.wins.put(unit.white, 0);
+    }
+
+    /**
+     * Plays every work unit and waits for all results.
+     *
+     * @param bind     The address to listen on.
+     * @param port     The port to listen on, 0 for any free port.
+     * @param nWorkers The number of local worker processes to keep running.
+     * @return The number of wins of each strategy.
+     */
+    Map<Strategy, Integer> run(InetAddress bind, int port, int nWorkers) throws IOException, InterruptedException {
+        this.remaining = new CountDownLatch(this.units.size());
+        this.localWorkers = new AtomicInteger(nWorkers);
+        this.queue.addAll(this.units);
+        List<Thread> supervisors = Lists.newArrayList();
+        try (final ServerSocket server = new ServerSocket(port, 50, bind)) {
+            System.out.printf("Coordinator listening on %s:%d with %d games\n",
+                    server.getInetAddress().getHostAddress(), server.getLocalPort(), this.units.size());
+            Thread acceptor = new Thread(() -> this.accept(server), "coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            String host = server.getInetAddress().isAnyLocalAddress()
+                    ? InetAddress.getLoopbackAddress().getHostAddress()
+                    : server.getInetAddress().getHostAddress();
+            for (int i = 0; i < nWorkers; ++i) {
+                final int worker = i;
+                Thread supervisor = new Thread(() -> this.supervise(worker, host, server.getLocalPort()),
+                        "coordinator-worker-" + i);
+                supervisor.setDaemon(true);
+                supervisor.start();
+                supervisors.add(supervisor);
+            }
+            this.remaining.await();
+            this.finished = true;
+        }
+        for (Thread supervisor : supervisors) {
+            supervisor.interrupt();
+            supervisor.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        return this.wins;
+    }
+
+    /**
+     * Accepts worker connections, each handled on its own thread, until the
+     * server socket is closed.
+     */
+    private void accept(ServerSocket server) {
+        while (!this.finished) {
+            try {
+                final Socket socket = server.accept();
+                Thread handler = new Thread(() -> this.serve(socket), "coordinator-" + socket.getRemoteSocketAddress());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!this.finished) {
+                    System.err.println("Coordinator stopped accepting workers: " + e);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands out games to one worker connection. If the connection fails or the
+     * worker overruns a game's deadline, the game goes back on the queue and the
+     * connection is closed, which makes the worker exit.
+     */
+    private void serve(Socket socket) {
+        WorkUnit unit = null;
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(s.getOutputStream(), true);
+            while (true) {
+                s.setSoTimeout(0);
+                String line = in.readLine();
+                if (line == null) {
+                    return;
+                }
+                if (!line.equals("READY") && !line.startsWith("READY ")) {
+                    throw new IOException("Expected READY, got " + line);
+                }
+                String name = line.length() > "READY ".length() ? line.substring("READY ".length()) : null;
+                while (unit == null && !this.finished) {
+                    unit = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                }
+                if (unit == null) {
+                    out.println("DONE");
+                    return;
+                }
+                unit.attempts++;
+                out.printf("GAME %d %s %s %d %d %s\n", unit.id, unit.black.getClass().getName(),
+                        unit.white.getClass().getName(), this.boardSize, this.timeoutMillis, this.clock);
+                s.setSoTimeout((int) Math.min(Integer.MAX_VALUE, gameDeadlineMillis(this.boardSize, this.timeoutMillis)));
+                line = in.readLine();
+                if (line == null) {
+                    throw new IOException("Worker disconnected during game " + unit.id);
+                }
+                this.record(unit, line, name);
+                unit = null;
+            }
+        } catch (SocketTimeoutException e) {
+            System.err.printf("Worker %s overran the deadline for game %d; stopping it\n",
+                    socket.getRemoteSocketAddress(), unit.id);
+        } catch (IOException | InterruptedException e) {
+            if (!(e instanceof SocketException && this.finished)) {
+                System.err.printf("Worker %s failed: %s\n", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } finally {
+            if (unit != null) {
+                this.retry(unit);
+            }
+        }
+    }
+
+    /**
+     * @return How long a worker may take over one game before it is considered
+     * stuck: every square played at the full move timeout, with the CPU clock's
+     * allowance for time spent descheduled, plus a margin for starting up.
+     * Workers stop themselves after the same deadline.
+     */
+    static long gameDeadlineMillis(int boardSize, long timeoutMillis) {
+        return boardSize * boardSize * timeoutMillis * 10 + TimeUnit.SECONDS.toMillis(30);
+    }
+
+    /**
+     * Records the reply to a game and counts the game as finished by the named
+     * worker, if any.
+     */
+    private synchronized void record(WorkUnit unit, String line, String name) {
+        if (name != null) {
+            this.gamesByWorker.put(name, this.gamesPlayedBy(name) + 1);
+        }
+        String[] fields = line.split(" ", 3);
+        if (fields[0].equals("ERROR")) {
+            System.err.printf("Game %d abandoned: %s\n", unit.id, line);
+            this.remaining.countDown();
+            return;
+        }
+        String[] result = line.split(" ");
+        if (result.length != 4 || !result[0].equals("RESULT") || !result[1].equals(Integer.toString(unit.id))) {
+            System.err.printf("Game %d abandoned: unexpected reply %s\n", unit.id, line);
+            this.remaining.countDown();
+            return;
+        }
+        Strategy winner = result[2].equals("BLACK") ? unit.black : result[2].equals("WHITE") ? unit.white : null;
+        if (winner != null) {
+            this.wins.put(winner, this.wins.get(winner) + 1);
+        }
+        System.out.printf("Game %d: %s (black) vs %s (white): %s%s\n", unit.id,
+                unit.black.getClass().getSimpleName(), unit.white.getClass().getSimpleName(),
+                winner == null ? "draw" : winner.getClass().getSimpleName() + " wins",
+                result[3].equals("-") ? "" : ", " + result[3] + " timed out");
+        this.remaining.countDown();
+    }
+
+    private synchronized int gamesPlayedBy(String name) {
+        Integer games = this.gamesByWorker.get(name);
+        return games == null ? 0 : games;
+    }
+
+    /**
+     * Puts a game back on the queue after a worker failed on it, or abandons it
+     * after {@code MAX_ATTEMPTS}.
+     */
+    private void retry(WorkUnit unit) {
+        if (unit.attempts < MAX_ATTEMPTS) {
+            this.queue.add(unit);
+        } else {
+            System.err.printf("Game %d abandoned after %d failed attempts\n", unit.id, unit.attempts);
+            this.remaining.countDown();
+        }
+    }
+
+    /**
+     * Keeps one local worker process running until the tournament is finished,
+     * restarting it if it exits early, unless it keeps exiting without finishing
+     * a game.
+     */
+    private void supervise(int worker, String host, int port) {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String name = "local-" + worker;
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                TournamentWorker.class.getName(), host, Integer.toString(port), name);
+        builder.inheritIO();
+        int failures = 0; //Exits in a row without finishing a game
+        while (!this.finished) {
+            Process process = null;
+            try {
+                int played = this.gamesPlayedBy(name);
+                process = builder.start();
+                int status = process.waitFor();
+                if (this.finished) {
+                    return;
+                }
+                failures = this.gamesPlayedBy(name) > played ? 0 : failures + 1;
+                if (failures >= MAX_CONSECUTIVE_FAILURES) {
+                    System.err.printf("Worker %d exited with status %d, %d times without finishing a game; "
+                            + "not restarting it\n", worker, status, failures);
+                    this.giveUp();
+                    return;
+                }
+                System.err.printf("Worker %d exited with status %d; restarting\n", worker, status);
+            } catch (IOException e) {
+                System.err.printf("Cannot start worker %d: %s\n", worker, e.getMessage());
+                this.giveUp();
+                return;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                if (process != null && process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops counting on a local worker. Once no local workers are left, the games
+     * not yet played are abandoned, since nothing may be left to play them.
+     */
+    private void giveUp() {
+        if (this.localWorkers.decrementAndGet() == 0 && !this.finished) {
+            System.err.printf("No local workers left; abandoning the %d games not yet played\n",
+                    this.remaining.getCount());
+            while (this.remaining.getCount() > 0) {
+                this.remaining.countDown();
+            }
+        }
+    }
+}
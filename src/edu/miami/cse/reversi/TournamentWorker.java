@@ -0,0 +1,129 @@
+package edu.miami.cse.reversi;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A worker process for {@link TournamentCoordinator}. It connects to the
+ * coordinator, then repeatedly asks for a game, plays it, and reports the
+ * result, until the coordinator has no more games. Workers can run on other
+ * hosts by giving them the coordinator's address. A worker exits if a game
+ * runs past the coordinator's deadline, since the coordinator will already
+ * have given that game to another worker.
+ */
+public class TournamentWorker {
+
+    /**
+     * Runs a worker.
+     *
+     * @param args The coordinator's host and port, and optionally a name for
+     *             this worker.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: TournamentWorker host port [name]");
+            System.exit(2);
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        String ready = args.length > 2 ? "READY " + args[2] : "READY";
+        try (Socket socket = connect(host, port)) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            Timer watchdog = new Timer("worker-watchdog", true);
+            while (true) {
+                out.println(ready);
+                String line = in.readLine();
+                if (line == null || line.equals("DONE")) {
+                    break;
+                }
+                TimerTask stop = new TimerTask() {
+                    @Override
+                    public void run() {
+                        System.err.println("Game overran its deadline; worker exiting");
+                        System.exit(3);
+                    }
+                };
+                watchdog.schedule(stop, deadlineMillis(line));
+                out.println(playGame(line));
+                stop.cancel();
+            }
+        }
+        // Strategies that timed out may still be running on their own threads
+        System.exit(0);
+    }
+
+    /**
+     * Connects to the coordinator, retrying for a few seconds in case it is not
+     * listening yet.
+     */
+    private static Socket connect(String host, int port) throws IOException, InterruptedException {
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (attempt == 20) {
+                    throw e;
+                }
+                TimeUnit.MILLISECONDS.sleep(250);
+            }
+        }
+    }
+
+    /**
+     * @return The deadline for the game described by a {@code GAME} line, or a
+     * short delay if the line is malformed.
+     */
+    private static long deadlineMillis(String line) {
+        String[] fields = line.split(" ");
+        try {
+            return TournamentCoordinator.gameDeadlineMillis(Integer.parseInt(fields[4]), Long.parseLong(fields[5]));
+        } catch (RuntimeException e) {
+            return TimeUnit.SECONDS.toMillis(30);
+        }
+    }
+
+    /**
+     * Plays the game described by a {@code GAME} line.
+     *
+     * @return The {@code RESULT} or {@code ERROR} line to send back.
+     */
+    static String playGame(String line) {
+        String[] fields = line.split(" ");
+        if (fields.length != 7 || !fields[0].equals("GAME")) {
+            return "ERROR -1 unexpected message: " + line;
+        }
+        String id = fields[1];
+        Strategy black, white;
+        try {
+            black = Class.forName(fields[2]).asSubclass(Strategy.class).newInstance();
+            white = Class.forName(fields[3]).asSubclass(Strategy.class).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return String.format("ERROR %s cannot create strategy: %s", id, e);
+        }
+        int boardSize = Integer.parseInt(fields[4]);
+        long timeoutMillis = Long.parseLong(fields[5]);
+        Reversi.Clock clock = Reversi.Clock.valueOf(fields[6]);
+
+        Reversi reversi = new Reversi(black, white, timeoutMillis, 0, TimeUnit.MILLISECONDS, clock);
+        Player winner;
+        String timedOut = "-";
+        try {
+            winner = reversi.play(new Board(boardSize)).getWinner();
+        } catch (StrategyTimedOutException e) {
+            // If one of the strategies timed out, the opponent is considered the winner
+            winner = e.getOpponentStrategy() == black ? Player.BLACK : Player.WHITE;
+            timedOut = winner.opponent().toString();
+        }
+        return String.format("RESULT %s %s %s", id, winner == null ? "DRAW" : winner, timedOut);
+    }
+}
@@ -0,0 +1,274 @@
+package edu.miami.cse.reversi;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fits square weights to the positions in a {@link PositionFile} by least
+ * squares. Squares are grouped into classes that are equivalent under the eight
+ * symmetries of the board (corners, edges next to corners, and so on), and the
+ * fitted weight of a class predicts how much each disc on it is worth towards
+ * the final disc differential. The file is streamed by several threads, each
+ * accumulating the normal equations over its own range of records, so the
+ * memory used does not depend on the number of positions.
+ */
+public class WeightFitter {
+
+    /**
+     * Runs the fitter. Arguments, all but the first optional:
+     * <ol>
+     * <li>the position file to fit</li>
+     * <li>the file to write the square weights to, one board row per line (default:
+     * print only)</li>
+     * <li>the number of threads (default: one per core)</li>
+     * <li>the ridge regularization per position added to the normal equations
+     * (default 1e-3)</li>
+     * </ol>
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: WeightFitter positions [weightsOut] [threads] [ridge]");
+            System.exit(2);
+        }
+        File input = new File(args[0]);
+        String output = args.length > 1 ? args[1] : null;
+        int nThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        double ridge = args.length > 3 ? Double.parseDouble(args[3]) : 1e-3;
+
+        long start = System.nanoTime();
+        WeightFitter fitter = new WeightFitter(input);
+        double[] weights = fitter.fit(nThreads, ridge);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d positions fitted in %.1fs (%.0f positions/s), rms error %.2f\n",
+                fitter.nRecords, seconds, fitter.nRecords / seconds, fitter.rmsError);
+        for (int row = 0; row < fitter.size; ++row) {
+            StringBuilder builder = new StringBuilder();
+            for (int column = 0; column < fitter.size; ++column) {
+                builder.append(String.format("%8.3f", weights[row * fitter.size + column]));
+            }
+            System.out.println(builder);
+        }
+        if (output != null) {
+            try (PrintWriter writer = new PrintWriter(output)) {
+                for (int row = 0; row < fitter.size; ++row) {
+                    for (int column = 0; column < fitter.size; ++column) {
+                        writer.print(column == 0 ? "" : " ");
+                        writer.print(weights[row * fitter.size + column]);
+                    }
+                    writer.println();
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns each square of a board of the given size to its symmetry class.
+     * Squares that map onto each other under rotation or reflection of the board
+     * share a class.
+     *
+     * @return The class of each square, indexed by bit index. Classes are
+     * numbered from 0 in order of first appearance.
+     */
+    static int[] squareClasses(int size) {
+        int half = size / 2;
+        int[] ids = new int[half * half];
+        Arrays.fill(ids, -1);
+        int[] classes = new int[size * size];
+        int nClasses = 0;
+        for (int row = 0; row < size; ++row) {
+            for (int column = 0; column < size; ++column) {
+                int r = Math.min(row, size - 1 - row);
+                int c = Math.min(column, size - 1 - column);
+                int key = Math.min(r, c) * half + Math.max(r, c);
+                if (ids[key] < 0) {
+                    ids[key] = nClasses++;
+                }
+                classes[row * size + column] = ids[key];
+            }
+        }
+        return classes;
+    }
+
+    private File input;
+    private int size;
+    private long nRecords;
+    private int recordBytes;
+    private int[] classes;
+    private long[][] classMasks;
+    private double rmsError;
+
+    WeightFitter(File input) throws IOException {
+        this.input = input;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(input))) {
+            this.size = PositionFile.readHeader(in);
+        }
+        this.recordBytes = PositionFile.recordBytes(this.size);
+        this.nRecords = (input.length() - PositionFile.HEADER_BYTES) / this.recordBytes;
+        this.classes = squareClasses(this.size);
+        int nClasses = 0;
+        for (int c : this.classes) {
+            nClasses = Math.max(nClasses, c + 1);
+        }
+        BitBoard geometry = BitBoard.forSize(this.size);
+        this.classMasks = new long[nClasses][];
+        for (int k = 0; k < nClasses; ++k) {
+            this.classMasks[k] = geometry.empty();
+        }
+        for (int index = 0; index < this.classes.length; ++index) {
+            BitBoard.set(this.classMasks[this.classes[index]], index);
+        }
+    }
+
+    /**
+     * Fits the class weights.
+     *
+     * @param nThreads The number of threads reading the file.
+     * @param ridge    The regularization per position added to the diagonal of the
+     *                 normal equations.
+     * @return The fitted weight of each square, indexed by bit index.
+     */
+    double[] fit(int nThreads, double ridge) throws Exception {
+        int nClasses = this.classMasks.length;
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        List<Future<double[][]>> parts = new ArrayList<>();
+        try {
+            for (int t = 0; t < nThreads; ++t) {
+                final long from = this.nRecords * t / nThreads;
+                final long to = this.nRecords * (t + 1) / nThreads;
+                parts.add(executor.submit((Callable<double[][]>) () -> this.accumulate(from, to)));
+            }
+            // xtx is nClasses x nClasses; the extra row holds x'y, then y'y
+            double[][] total = new double[nClasses + 1][nClasses + 1];
+            for (Future<double[][]> part : parts) {
+                double[][] sums = part.get();
+                for (int i = 0; i <= nClasses; ++i) {
+                    for (int j = 0; j <= nClasses; ++j) {
+                        total[i][j] += sums[i][j];
+                    }
+                }
+            }
+            double[][] xtx = new double[nClasses][nClasses];
+            double[] xty = new double[nClasses];
+            for (int i = 0; i < nClasses; ++i) {
+                System.arraycopy(total[i], 0, xtx[i], 0, nClasses);
+                xtx[i][i] += ridge * Math.max(1, this.nRecords);
+                xty[i] = total[nClasses][i];
+            }
+            double[] classWeights = solve(xtx, xty);
+
+            // Residual sum of squares: y'y - 2 w'X'y + w'X'Xw
+            double rss = total[nClasses][nClasses];
+            for (int i = 0; i < nClasses; ++i) {
+                rss -= 2 * classWeights[i] * total[nClasses][i];
+                for (int j = 0; j < nClasses; ++j) {
+                    rss += classWeights[i] * total[i][j] * classWeights[j];
+                }
+            }
+            this.rmsError = this.nRecords == 0 ? 0 : Math.sqrt(Math.max(0, rss) / this.nRecords);
+
+            double[] weights = new double[this.classes.length];
+            for (int index = 0; index < weights.length; ++index) {
+                weights[index] = classWeights[this.classes[index]];
+            }
+            return weights;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Accumulates the normal equations over records {@code from} (inclusive) to
+     * {@code to} (exclusive). The feature of a class is the number of squares of
+     * that class held by the player to move minus those held by the opponent.
+     *
+     * @return X'X in the first rows and columns, X'y in the last row, and y'y in
+     * the last cell.
+     */
+    private double[][] accumulate(long from, long to) throws IOException {
+        int nClasses = this.classMasks.length;
+        double[][] sums = new double[nClasses + 1][nClasses + 1];
+        long[] own = BitBoard.forSize(this.size).empty();
+        long[] opponent = BitBoard.forSize(this.size).empty();
+        int[] x = new int[nClasses];
+        try (FileInputStream file = new FileInputStream(this.input)) {
+            file.getChannel().position(PositionFile.HEADER_BYTES + from * this.recordBytes);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16));
+            for (long record = from; record < to; ++record) {
+                int y = PositionFile.readRecord(in, own, opponent);
+                for (int k = 0; k < nClasses; ++k) {
+                    long[] mask = this.classMasks[k];
+                    int value = 0;
+                    for (int i = 0; i < mask.length; ++i) {
+                        value += Long.bitCount(own[i] & mask[i]) - Long.bitCount(opponent[i] & mask[i]);
+                    }
+                    x[k] = value;
+                }
+                for (int i = 0; i < nClasses; ++i) {
+                    if (x[i] == 0) {
+                        continue;
+                    }
+                    double[] row = sums[i];
+                    for (int j = 0; j < nClasses; ++j) {
+                        row[j] += x[i] * x[j];
+                    }
+                    sums[nClasses][i] += x[i] * y;
+                }
+                sums[nClasses][nClasses] += (double) y * y;
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Solves {@code a x = b} by Gaussian elimination with partial pivoting. Both
+     * arguments are overwritten.
+     */
+    private static double[] solve(double[][] a, double[] b) {
+        int n = b.length;
+        for (int col = 0; col < n; ++col) {
+            int pivot = col;
+            for (int row = col + 1; row < n; ++row) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            double[] rowSwap = a[col];
+            a[col] = a[pivot];
+            a[pivot] = rowSwap;
+            double valueSwap = b[col];
+            b[col] = b[pivot];
+            b[pivot] = valueSwap;
+            if (a[col][col] == 0) {
+                throw new IllegalStateException("Normal equations are singular; try a larger ridge");
+            }
+            for (int row = col + 1; row < n; ++row) {
+                double factor = a[row][col] / a[col][col];
+                for (int k = col; k < n; ++k) {
+                    a[row][k] -= factor * a[col][k];
+                }
+                b[row] -= factor * b[col];
+            }
+        }
+        double[] x = new double[n];
+        for (int row = n - 1; row >= 0; --row) {
+            double sum = b[row];
+            for (int k = row + 1; k < n; ++k) {
+                sum -= a[row][k] * x[k];
+            }
+            x[row] = sum / a[row][row];
+        }
+        return x;
+    }
+}
@@ -1,142 +1,221 @@
 package edu.miami.cse.reversi.strategy;
 
+import edu.miami.cse.reversi.BatchEvaluator;
 import edu.miami.cse.reversi.Board;
 import edu.miami.cse.reversi.Player;
 import edu.miami.cse.reversi.Square;
 import edu.miami.cse.reversi.Strategy;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A negamax search using Principal Variation Search: the first move at each
+ * node is searched with the full window and the rest with a null window, and
+ * only re-searched if they turn out better. The search deepens iteratively up
+ * to {@code MAX_DEPTH}, trying the previous iteration's best move first and
+ * searching each iteration within an aspiration window around the previous
+ * iteration's score. Given {@link ProbCut} parameters, it also skips subtrees
+ * that a shallower search shows are very likely outside the window.
+ */
 public class AlphaBeta implements Strategy{
 
-    private Player color;
     private final int MAX_DEPTH = 4;
-    private Square bestMove = null;
+    private final int ASPIRATION_WINDOW = 10;
+    private final int INFINITY = 1000000;
+    private static final int WIN = 100000;
+
+    private int maxDepth;
+    private boolean principalVariation;
+    private ProbCut probCut;
+    private BatchEvaluator evaluator;
+    private long nodes;
+    private int score;
+
+    /**
+     * Creates a Principal Variation Search to {@code MAX_DEPTH}.
+     */
+    public AlphaBeta() {
+        this.maxDepth = MAX_DEPTH;
+        this.principalVariation = true;
+    }
+
+    /**
+     * @param maxDepth           The depth to search to.
+     * @param principalVariation True for Principal Variation Search with
+     *                           iterative deepening and aspiration windows, false
+     *                           for a single plain alpha-beta search to
+     *                           {@code maxDepth}.
+     */
+    public AlphaBeta(int maxDepth, boolean principalVariation) {
+        this(maxDepth, principalVariation, null);
+    }
 
-    private final int EDGE = 15;
-    private final int REGION_4 = -5;
-    private final int CORNER = 20;
+    /**
+     * @param maxDepth           The depth to search to.
+     * @param principalVariation True for Principal Variation Search with
+     *                           iterative deepening and aspiration windows, false
+     *                           for a single plain alpha-beta search to
+     *                           {@code maxDepth}.
+     * @param probCut            Multi-ProbCut parameters, or null to search every
+     *                           subtree in full.
+     */
+    public AlphaBeta(int maxDepth, boolean principalVariation, ProbCut probCut) {
+        this.maxDepth = maxDepth;
+        this.principalVariation = principalVariation;
+        this.probCut = probCut;
+    }
 
     @Override
     public Square chooseSquare(Board board) {
-        color = board.getCurrentPlayer();
         return chooseOne(board);
     }
 
+    /**
+     * @return The number of positions visited by the last call to
+     * {@link #chooseSquare(Board)}.
+     */
+    public long getNodeCount() {
+        return nodes;
+    }
 
-    private Square chooseOne(Board board){
-        return alphaBeta(board);
+    /**
+     * @return True if the given score is that of a won or lost game rather than an
+     * evaluation.
+     */
+    public static boolean isDecided(int score) {
+        return Math.abs(score) >= WIN;
     }
 
-    private Square alphaBeta(Board board) {
-        maxValue(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, board);
-        return bestMove;
+    /**
+     * @return The score of the square chosen by the last call to
+     * {@link #chooseSquare(Board)}, from the point of view of the player to move.
+     */
+    public int getScore() {
+        return score;
     }
 
-    private int maxValue(int alpha, int beta, int depth, Board board) {
-        if(depth >= MAX_DEPTH){
-            return evaluateMove(board);
+    private Square chooseOne(Board board){
+        if (evaluator == null || evaluator.size() != board.size()) {
+            evaluator = new BatchEvaluator(board.size(), BatchEvaluator.defaultWeights(board.size()), 0);
         }
-
-
-        if (board.getCurrentPossibleSquares().isEmpty()) {
-            return minValue(alpha, beta, board, depth + 1);
+        nodes = 0;
+        List<Square> moves = new ArrayList<>(board.getCurrentPossibleSquares());
+        if (!principalVariation) {
+            score = searchRoot(board, moves, maxDepth, -INFINITY, INFINITY);
+            return moves.get(0);
         }
-
-        Square tempMove = null;
-        int tempResult = Integer.MIN_VALUE;
-        Board newBoard = board;
-
-        for (Square move : newBoard.getCurrentPossibleSquares()) {
-
-            newBoard = board.play( move);
-
-
-            alpha = minValue(alpha, beta, newBoard, depth + 1);
-
-            if(alpha > tempResult){
-                tempMove = move;
-                tempResult = alpha;
+        score = searchRoot(board, moves, 1, -INFINITY, INFINITY);
+        for (int depth = 2; depth <= maxDepth; depth++) {
+            int alpha = score - ASPIRATION_WINDOW;
+            int beta = score + ASPIRATION_WINDOW;
+            score = searchRoot(board, moves, depth, alpha, beta);
+            if (score <= alpha || score >= beta) {
+                // Outside the aspiration window; the score is only a bound
+                score = searchRoot(board, moves, depth, -INFINITY, INFINITY);
             }
+        }
+        return moves.get(0);
+    }
 
+    /**
+     * Searches every root move and moves the best one to the front of
+     * {@code moves}, so that the next iteration searches it first.
+     *
+     * @return The score of the best move.
+     */
+    private int searchRoot(Board board, List<Square> moves, int depth, int alpha, int beta) {
+        nodes++;
+        int best = -INFINITY;
+        int bestIndex = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int result = searchChild(board.play(moves.get(i)), depth - 1, alpha, beta, i == 0);
+            if (result > best) {
+                best = result;
+                bestIndex = i;
+            }
+            alpha = Math.max(alpha, result);
             if (alpha >= beta) {
                 break;
             }
-
         }
-
-        bestMove = tempMove;
-        return alpha;
+        moves.add(0, moves.remove(bestIndex));
+        return best;
     }
 
-    private int minValue(int alpha, int beta, Board board, int depth) {
-        if(depth >= MAX_DEPTH){
-            return evaluateMove(board);
+    /**
+     * Negamax search with alpha-beta pruning.
+     *
+     * @return The score of the board from the point of view of the player to
+     * move. Fails soft: may lie outside the window.
+     */
+    private int search(Board board, int depth, int alpha, int beta) {
+        nodes++;
+        if (board.isComplete()) {
+            return finalScore(board);
+        }
+        if (depth <= 0) {
+            return evaluator.evaluate(board, board.getCurrentPlayer());
         }
-
-        Board newBoard = board;
-
         if (board.getCurrentPossibleSquares().isEmpty()) {
-            return maxValue(alpha, beta, depth, board);
+            return -search(board.pass(), depth, -beta, -alpha);
         }
-
-        for (Square move : newBoard.getCurrentPossibleSquares()) {
-            newBoard.play(move);
-
-            beta = Math.min(beta, maxValue(alpha, beta, depth + 1, newBoard));
-
-            if (beta <= alpha) {
-                break;
+        if (probCut != null && !isDecided(alpha) && !isDecided(beta)) {
+            double threshold = probCut.getThreshold();
+            for (ProbCut.Cut cut : probCut.getCuts(board, depth)) {
+                int bound = cut.upperBound(beta, threshold);
+                if (!isDecided(bound) && search(board, cut.shallowDepth, bound - 1, bound) >= bound) {
+                    return beta;
+                }
+                bound = cut.lowerBound(alpha, threshold);
+                if (!isDecided(bound) && search(board, cut.shallowDepth, bound, bound + 1) <= bound) {
+                    return alpha;
+                }
             }
-
-            newBoard = board;
         }
-        return beta;
-    }
-
-    private int evaluateMove(Board board) {
-        int ourScore = board.getPlayerSquareCounts().get(color);
-        int opponentScore = board.getPlayerSquareCounts().get(color.opponent());
-        int finalScore = ourScore - opponentScore;
-        for (int i = 0; i < board.getMoves().size(); i++) {
-            if (board.getMoves().get(i).getPlayer().equals(board.getCurrentPlayer())) {
-                Square move = board.getMoves().get(i).getSquare();
-                if (isCorner(move, board)) {
-                    finalScore += CORNER;
-                } else if (isRegion4(move, board)) {
-                    finalScore += REGION_4;
-                } else if (isEdge(move, board)) {
-                    finalScore += EDGE;
-                }
+        int best = -INFINITY;
+        boolean first = true;
+        for (Square move : board.getCurrentPossibleSquares()) {
+            int result = searchChild(board.play(move), depth - 1, alpha, beta, first);
+            first = false;
+            best = Math.max(best, result);
+            alpha = Math.max(alpha, result);
+            if (alpha >= beta) {
+                break;
             }
         }
-        return finalScore;
+        return best;
     }
 
-    private boolean isCorner(Square move, final Board board) {
-        return move.getRow() == 0 && move.getColumn() == 0 ||
-                move.getRow() == 0 && move.getColumn() == board.size() - 1 ||
-                move.getRow() == board.size() - 1 && move.getColumn() == 0 ||
-                move.getRow() == board.size() - 1 && move.getColumn() == board.size() - 1;
-    }
-
-    private boolean isRegion4(Square move, final Board board) {
-        return move.getRow() == 1 && move.getColumn() == 0 ||
-                move.getRow() == 0 && move.getColumn() == 1 ||
-                move.getRow() == 1 && move.getColumn() == 1 ||
-                move.getRow() == board.size() - 2 && move.getColumn() == 0 ||
-                move.getRow() == board.size() - 1 && move.getColumn() == 1 ||
-                move.getRow() == board.size() - 2 && move.getColumn() == 1 ||
-                move.getRow() == 0 && move.getColumn() == board.size() - 2 ||
-                move.getRow() == 1 && move.getColumn() == board.size() - 1 ||
-                move.getRow() == 1 && move.getColumn() == board.size() - 2 ||
-                move.getRow() == board.size() - 1 && move.getColumn() == board.size() - 2 ||
-                move.getRow() == board.size() - 2 && move.getColumn() == board.size() - 1 ||
-                move.getRow() == board.size() - 2 && move.getColumn() == board.size() - 2;
+    /**
+     * Searches a child position, from the point of view of its parent. With
+     * Principal Variation Search, moves after the first are expected to be worse
+     * and are only proven so with a null window around alpha; a move that
+     * proves better is searched again with the full window.
+     */
+    private int searchChild(Board child, int depth, int alpha, int beta, boolean first) {
+        if (first || !principalVariation) {
+            return -search(child, depth, -beta, -alpha);
+        }
+        int result = -search(child, depth, -alpha - 1, -alpha);
+        if (alpha < result && result < beta) {
+            result = -search(child, depth, -beta, -result);
+        }
+        return result;
     }
 
-    private boolean isEdge(Square move, final Board board) {
-        return move.getRow() == 0 ||
-                move.getRow() == board.size() - 1 ||
-                move.getColumn() == 0 ||
-                move.getColumn() == board.size() - 1;
+    /**
+     * @return The score of a finished game: a win or loss outweighs any
+     * evaluation, and is larger the more discs it is won by.
+     */
+    private int finalScore(Board board) {
+        Player player = board.getCurrentPlayer();
+        int difference = board.getPlayerSquareCounts().get(player) - board.getPlayerSquareCounts().get(player.opponent());
+        if (difference > 0) {
+            return WIN + difference;
+        } else if (difference < 0) {
+            return -WIN + difference;
+        }
+        return 0;
     }
 }
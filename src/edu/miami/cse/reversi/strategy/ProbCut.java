@@ -0,0 +1,142 @@
+package edu.miami.cse.reversi.strategy;
+
+import edu.miami.cse.reversi.Board;
+import edu.miami.cse.reversi.Player;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameters for Multi-ProbCut. For a deep search depth and a shallower one,
+ * the deep score is modeled as {@code slope * shallow + intercept}, with
+ * residuals of standard deviation {@code sigma}. A shallow search can then
+ * show that the deep score is very likely outside the window, and the deep
+ * search is skipped. Parameters are fitted separately for each game stage,
+ * where stages divide the game evenly by the number of discs on the board.
+ * <p>
+ * The parameter file is text. Blank lines and lines starting with {@code #}
+ * are ignored; the other lines are one of:
+ * <ul>
+ * <li>{@code threshold t}: how many {@code sigma} the predicted score must clear
+ * the window by</li>
+ * <li>{@code stages n}: the number of game stages</li>
+ * <li>{@code cut stage depth shallowDepth slope intercept sigma}: one depth pair</li>
+ * </ul>
+ * Several cuts may be given for the same stage and depth; they are tried in
+ * file order, so the shallowest should come first.
+ */
+public class ProbCut {
+
+    /**
+     * One depth pair of a stage.
+     */
+    static class Cut {
+        int shallowDepth;
+        double slope;
+        double intercept;
+        double sigma;
+
+        /**
+         * @return The shallow score at or above which the deep score is very likely
+         * at least {@code beta}.
+         */
+        int upperBound(int beta, double threshold) {
+            return (int) Math.ceil((beta + threshold * this.sigma - this.intercept) / this.slope);
+        }
+
+        /**
+         * @return The shallow score at or below which the deep score is very likely
+         * at most {@code alpha}.
+         */
+        int lowerBound(int alpha, double threshold) {
+            return (int) Math.floor((alpha - threshold * this.sigma - this.intercept) / this.slope);
+        }
+    }
+
+    private double threshold;
+    private int stages;
+    private Map<Integer, List<Cut>> cuts; //By stage * 1000 + depth
+
+    private ProbCut(double threshold, int stages) {
+        this.threshold = threshold;
+        this.stages = stages;
+        this.cuts = new HashMap<>();
+    }
+
+    /**
+     * Reads Multi-ProbCut parameters from a file in the format described above.
+     *
+     * @throws IOException If the file cannot be read or is malformed.
+     */
+    public static ProbCut load(String file) throws IOException {
+        ProbCut probCut = new ProbCut(1.5, 1);
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                ++lineNumber;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                try {
+                    if (fields[0].equals("threshold") && fields.length == 2) {
+                        probCut.threshold = Double.parseDouble(fields[1]);
+                    } else if (fields[0].equals("stages") && fields.length == 2) {
+                        probCut.stages = Integer.parseInt(fields[1]);
+                    } else if (fields[0].equals("cut") && fields.length == 7) {
+                        Cut cut = new Cut();
+                        int stage = Integer.parseInt(fields[1]);
+                        int depth = Integer.parseInt(fields[2]);
+                        cut.shallowDepth = Integer.parseInt(fields[3]);
+                        cut.slope = Double.parseDouble(fields[4]);
+                        cut.intercept = Double.parseDouble(fields[5]);
+                        cut.sigma = Double.parseDouble(fields[6]);
+                        if (cut.slope <= 0 || cut.shallowDepth >= depth) {
+                            String message = "%s:%d: cut needs a positive slope and a shallower depth";
+                            throw new IOException(String.format(message, file, lineNumber));
+                        }
+                        probCut.cuts.computeIfAbsent(stage * 1000 + depth, key -> new ArrayList<>()).add(cut);
+                    } else {
+                        String message = "%s:%d: unrecognized line: %s";
+                        throw new IOException(String.format(message, file, lineNumber, line));
+                    }
+                } catch (NumberFormatException e) {
+                    String message = "%s:%d: %s";
+                    throw new IOException(String.format(message, file, lineNumber, e.getMessage()), e);
+                }
+            }
+        }
+        return probCut;
+    }
+
+    /**
+     * @return The game stage of a board with the given number of discs, from 0
+     * to {@code stages - 1}.
+     */
+    public static int stage(int discs, int squares, int stages) {
+        return Math.min(stages - 1, discs * stages / squares);
+    }
+
+    double getThreshold() {
+        return this.threshold;
+    }
+
+    /**
+     * @return The cuts to try before searching the given board to the given
+     * depth, possibly none.
+     */
+    List<Cut> getCuts(Board board, int depth) {
+        Map<Player, Integer> counts = board.getPlayerSquareCounts();
+        int discs = counts.get(Player.BLACK) + counts.get(Player.WHITE);
+        int stage = stage(discs, board.size() * board.size(), this.stages);
+        List<Cut> stageCuts = this.cuts.get(stage * 1000 + depth);
+        return stageCuts == null ? Collections.<Cut>emptyList() : stageCuts;
+    }
+}
@@ -0,0 +1,28 @@
+package edu.miami.cse.reversi.strategy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * {@link AlphaBeta} with Multi-ProbCut, searching deeper in the same time. The
+ * parameters are read from {@code probcut.txt} in the working directory, as
+ * written by {@code ProbCutCalibration}; the file location can be changed with
+ * the {@code reversi.probcut} system property.
+ */
+public class ProbCutAlphaBeta extends AlphaBeta {
+
+    private static final int PROBCUT_DEPTH = 7;
+
+    public ProbCutAlphaBeta() {
+        super(PROBCUT_DEPTH, true, loadParameters());
+    }
+
+    private static ProbCut loadParameters() {
+        String file = System.getProperty("reversi.probcut", "probcut.txt");
+        try {
+            return ProbCut.load(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read ProbCut parameters from " + file, e);
+        }
+    }
+}